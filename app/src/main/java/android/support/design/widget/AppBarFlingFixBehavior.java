@@ -1,6 +1,5 @@
 package android.support.design.widget;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.view.ViewCompat;
@@ -16,7 +15,12 @@ import java.lang.reflect.Field;
 public class AppBarFlingFixBehavior extends AppBarLayout.Behavior {
     private static final int MAX_OFFSET_ANIMATION_DURATION = 600; // ms
 
-    private ValueAnimator mOffsetAnimator;
+    private FrameAnimation mOffsetAnimator;
+    //动画的目标，onUpdate 中使用
+    private CoordinatorLayout mAnimatingParent;
+    private AppBarLayout mAnimatingChild;
+    private int mAnimationFrom;
+    private int mAnimationTo;
 
     public AppBarFlingFixBehavior() {
     }
@@ -120,22 +124,22 @@ public class AppBarFlingFixBehavior extends AppBarLayout.Behavior {
         }
 
         if (mOffsetAnimator == null) {
-            mOffsetAnimator = new ValueAnimator();
-            mOffsetAnimator.setInterpolator(AnimationUtils.DECELERATE_INTERPOLATOR);
-            mOffsetAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            mOffsetAnimator = new FrameAnimation(FrameScheduler.ORDER_OFFSET) {
                 @Override
-                public void onAnimationUpdate(ValueAnimator animator) {
-                    setHeaderTopBottomOffset(coordinatorLayout, child,
-                            (Integer) animator.getAnimatedValue());
+                protected void onUpdate(float fraction) {
+                    setHeaderTopBottomOffset(mAnimatingParent, mAnimatingChild,
+                            Math.round(mAnimationFrom + (mAnimationTo - mAnimationFrom) * fraction));
                 }
-            });
+            };
         } else {
             mOffsetAnimator.cancel();
         }
 
-        mOffsetAnimator.setDuration(Math.min(duration, MAX_OFFSET_ANIMATION_DURATION));
-        mOffsetAnimator.setIntValues(currentOffset, offset);
-        mOffsetAnimator.start();
+        mAnimatingParent = coordinatorLayout;
+        mAnimatingChild = child;
+        mAnimationFrom = currentOffset;
+        mAnimationTo = offset;
+        mOffsetAnimator.start(Math.min(duration, MAX_OFFSET_ANIMATION_DURATION), AnimationUtils.DECELERATE_INTERPOLATOR);
     }
 
     @VisibleForTesting
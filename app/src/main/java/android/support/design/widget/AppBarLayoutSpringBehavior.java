@@ -1,16 +1,16 @@
 package android.support.design.widget;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.content.Context;
+import android.graphics.Rect;
 import android.os.Build;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.view.View;
-import android.view.animation.DecelerateInterpolator;
+import android.view.ViewGroup;
+import android.view.animation.AnimationUtils;
 import android.view.animation.Interpolator;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static android.support.v4.view.ViewCompat.TYPE_NON_TOUCH;
@@ -27,19 +27,54 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
         void springCallback(int offset);
     }
 
+    /**
+     * 修改AppBarLayout高度并重新布局，默认方式
+     */
+    public static final int STRETCH_MODE_LAYOUT = 0;
+    /**
+     * 不改变布局，只在绘制时变换：拉伸目标从顶部等比放大，其下方的View和依赖AppBarLayout的View下移，
+     * 放大后超出原宽度的部分用裁剪区域裁掉，每帧没有measure/layout
+     */
+    public static final int STRETCH_MODE_TRANSFORM = 1;
+
+    private static final SpringOffsetCallback[] NO_CALLBACKS = new SpringOffsetCallback[0];
+
+    //弹簧默认刚度，临界阻尼下约 0.4 秒回到原位
+    private static final float DEFAULT_STIFFNESS = 500f;
+    //两次惯性滚动间隔超过该值时不再据此估算速度，按一帧计算
+    private static final long MAX_FLING_SAMPLE_INTERVAL = 100;
+    private static final long FRAME_INTERVAL = 16;
+
     //插值偏移
     private int mOffsetDelta;
     //滑动偏移量
     private int mOffsetSpring;
 
-    //恢复动画
-    private ValueAnimator mSpringRecoverAnimator;
-    //滑动时动画
-    private ValueAnimator mFlingAnimator;
+    //惯性下拉和恢复共用的阻尼弹簧，位置即形变偏移量
+    private final DampedSpring mSpring = new DampedSpring(DEFAULT_STIFFNESS, DampedSpring.DAMPING_RATIO_CRITICAL);
+    private final SpringFrame mSpringFrame = new SpringFrame();
+    //本次惯性滚动是否已交给弹簧
+    private boolean mFlingSpringStarted;
+    //上一次惯性滚动到达的时间
+    private long mLastFlingScrollTime;
+    //抬手时的惯性速度，像素/秒，向下拉伸为正，作为恢复的初速度
+    private float mPendingVelocity;
     //头部高度
     private int mPreHeadHeight;
-    //下拉滑动便宜量
+    //下拉滑动便宜量，setSpringOffsetCallback 设置的回调，同时也在 mCallbacks 中
     private SpringOffsetCallback mSpringOffsetCallback;
+    //写时复制的回调数组，增删时替换整个数组，分发时遍历快照，不分配对象
+    private SpringOffsetCallback[] mCallbacks = NO_CALLBACKS;
+    //每帧合并一次的回调，在绘制前的帧回调中收到本帧最后的偏移量
+    private SpringOffsetCallback[] mCoalescedCallbacks = NO_CALLBACKS;
+    private final CoalescedDispatch mCoalescedDispatch = new CoalescedDispatch();
+    //形变方式
+    private int mStretchMode = STRETCH_MODE_LAYOUT;
+    //变换方式下被拉伸的View的id，NO_ID时为AppBarLayout的第一个子View
+    private int mStretchTargetId = View.NO_ID;
+    private final Rect mClipBounds = new Rect();
+    //拉伸开始时由本类关闭了clipChildren的父View，回到原位或脱离时恢复
+    private final List<ViewGroup> mUnclippedParents = new ArrayList<>();
 
     public AppBarLayoutSpringBehavior() {
     }
@@ -51,10 +86,8 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
     @Override
     public boolean onStartNestedScroll(CoordinatorLayout parent, AppBarLayout child, View directTargetChild, View target, int nestedScrollAxes, int type) {
         final boolean started = super.onStartNestedScroll(parent, child, directTargetChild, target, nestedScrollAxes, type);
-        if (started && mSpringRecoverAnimator != null && mSpringRecoverAnimator.isRunning()) {
-            mSpringRecoverAnimator.cancel();
-        }
-        resetFlingAnimator();
+        stopSpring();
+        mFlingSpringStarted = false;
         return started;
     }
 
@@ -63,17 +96,30 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
         if (dyUnconsumed < 0) {
             setHeaderTopBottomOffset(coordinatorLayout, child,
                     getTopBottomOffsetForScrollingSibling() - dyUnconsumed, -child.getDownNestedScrollRange(), 0, type);
+            if (type == TYPE_NON_TOUCH) {
+                mLastFlingScrollTime = AnimationUtils.currentAnimationTimeMillis();
+            }
         }
     }
 
+    @Override
+    public boolean onNestedPreFling(CoordinatorLayout coordinatorLayout, AppBarLayout child, View target, float velocityX, float velocityY) {
+        //velocityY 为正时内容上滑，形变偏移减小
+        mPendingVelocity = mOffsetSpring > 0 ? -velocityY : 0;
+        return super.onNestedPreFling(coordinatorLayout, child, target, velocityX, velocityY);
+    }
+
     @Override
     public void onStopNestedScroll(CoordinatorLayout coordinatorLayout, AppBarLayout abl, View target, int type) {
         super.onStopNestedScroll(coordinatorLayout, abl, target, type);
 
         if (type == TYPE_NON_TOUCH) {
-            resetFlingAnimator();
+            mFlingSpringStarted = false;
+        }
+        //惯性下拉的弹簧会自己回到原位，不打断以保持速度连续
+        if (!mSpring.isRunning()) {
+            checkShouldSpringRecover(coordinatorLayout, abl);
         }
-        checkShouldSpringRecover(coordinatorLayout, abl);
     }
 
 
@@ -87,68 +133,96 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
     }
 
     /**
-     * 下拉形变动画
+     * 惯性滚动到顶后继续下拉形变：以到达时的滚动速度为初速度启动弹簧，先拉伸再回到原位
+     *
+     * @param originNew 本次惯性滚动的距离
      */
-    private void animateFlingSpring(final CoordinatorLayout coordinatorLayout, final AppBarLayout abl, int originNew) {
-        if (mFlingAnimator == null) {
-            mFlingAnimator = new ValueAnimator();
-            mFlingAnimator.setDuration(200);
-            mFlingAnimator.setInterpolator(new DecelerateInterpolator());
-            mFlingAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    updateSpringHeaderHeight(coordinatorLayout, abl, (int) animation.getAnimatedValue());
-                }
-            });
-            mFlingAnimator.addListener(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    super.onAnimationEnd(animation);
-                    checkShouldSpringRecover(coordinatorLayout, abl);
-                }
-            });
-        } else {
-            if (mFlingAnimator.isRunning()) {
-                mFlingAnimator.cancel();
-            }
+    private void animateFlingSpring(CoordinatorLayout coordinatorLayout, AppBarLayout abl, int originNew) {
+        long now = AnimationUtils.currentAnimationTimeMillis();
+        long interval = now - mLastFlingScrollTime;
+        if (interval <= 0 || interval > MAX_FLING_SAMPLE_INTERVAL) {
+            interval = FRAME_INTERVAL;
         }
-        mFlingAnimator.setIntValues(mOffsetSpring, Math.min(mPreHeadHeight * 3 / 2, originNew));
-        mFlingAnimator.start();
+        startSpring(coordinatorLayout, abl, originNew * 1000f / interval);
     }
 
     /**
-     * 重置动画
+     * 恢复动画，初速度为正在运行的弹簧速度或抬手时的惯性速度
      */
-    private void resetFlingAnimator() {
-        if (mFlingAnimator != null) {
-            if (mFlingAnimator.isRunning()) {
-                mFlingAnimator.cancel();
-            }
-            mFlingAnimator = null;
+    private void animateRecoverBySpring(CoordinatorLayout coordinatorLayout, AppBarLayout abl) {
+        float velocity = mSpring.isRunning() ? mSpring.getVelocity() : mPendingVelocity;
+        mPendingVelocity = 0;
+        startSpring(coordinatorLayout, abl, velocity);
+    }
+
+    private void startSpring(CoordinatorLayout coordinatorLayout, AppBarLayout abl, float velocity) {
+        mSpring.start(mOffsetSpring, velocity, 0);
+        if (!mSpring.isRunning()) {
+            updateSpringHeaderHeight(coordinatorLayout, abl, 0);
+            return;
         }
+        mSpringFrame.start(coordinatorLayout, abl);
+    }
+
+    private void stopSpring() {
+        mSpring.cancel();
+        mSpringFrame.stop();
     }
 
     /**
-     * 恢复动画
+     * 设置弹簧参数
+     *
+     * @param stiffness    刚度，越大回弹越快
+     * @param dampingRatio 阻尼比，1 为临界阻尼，小于 1 时回到原位前会越过并被限制在原位
      */
-    private void animateRecoverBySpring(final CoordinatorLayout coordinatorLayout, final AppBarLayout abl) {
-        if (mSpringRecoverAnimator == null) {
-            mSpringRecoverAnimator = new ValueAnimator();
-            mSpringRecoverAnimator.setDuration(200);
-            mSpringRecoverAnimator.setInterpolator(new DecelerateInterpolator());
-            mSpringRecoverAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    updateSpringHeaderHeight(coordinatorLayout, abl, (int) animation.getAnimatedValue());
-                }
-            });
-        } else {
-            if (mSpringRecoverAnimator.isRunning()) {
-                mSpringRecoverAnimator.cancel();
+    public void setSpring(float stiffness, float dampingRatio) {
+        mSpring.setStiffness(stiffness);
+        mSpring.setDampingRatio(dampingRatio);
+    }
+
+    /**
+     * 每帧推进弹簧并更新形变，由 {@link FrameScheduler} 驱动，整个过程只有这一个对象
+     */
+    private final class SpringFrame implements FrameScheduler.FrameCallback {
+        private CoordinatorLayout mParent;
+        private AppBarLayout mChild;
+        private long mLastFrameTime;
+
+        void start(CoordinatorLayout parent, AppBarLayout child) {
+            mParent = parent;
+            mChild = child;
+            mLastFrameTime = AnimationUtils.currentAnimationTimeMillis();
+            FrameScheduler.getInstance().add(this, FrameScheduler.ORDER_OFFSET);
+        }
+
+        void stop() {
+            if (mChild != null) {
+                FrameScheduler.getInstance().remove(this);
+                mChild = null;
+                mParent = null;
+            }
+        }
+
+        @Override
+        public boolean doFrame(long frameTimeMillis) {
+            CoordinatorLayout parent = mParent;
+            AppBarLayout child = mChild;
+            if (child == null) {
+                return false;
+            }
+            //启动时刻可能晚于本帧的时间戳
+            boolean running = mSpring.update(Math.max(0, frameTimeMillis - mLastFrameTime));
+            mLastFrameTime = Math.max(mLastFrameTime, frameTimeMillis);
+            //形变不能小于 0，也不超过头部高度的 1.5 倍
+            mSpring.clamp(0, mPreHeadHeight * 3 / 2);
+            running &= mSpring.isRunning();
+            updateSpringHeaderHeight(parent, child, Math.round(mSpring.getValue()));
+            if (!running) {
+                mChild = null;
+                mParent = null;
             }
+            return running;
         }
-        mSpringRecoverAnimator.setIntValues(mOffsetSpring, 0);
-        mSpringRecoverAnimator.start();
     }
 
     @Override
@@ -196,7 +270,8 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
     private int updateSpringByScroll(CoordinatorLayout coordinatorLayout, AppBarLayout appBarLayout, int type, int originNew) {
         int consumed;
         if (appBarLayout.getHeight() >= mPreHeadHeight && type == 1) {
-            if (mFlingAnimator == null) {
+            if (!mFlingSpringStarted) {
+                mFlingSpringStarted = true;
                 animateFlingSpring(coordinatorLayout, appBarLayout, originNew);
             }
             return originNew;
@@ -216,9 +291,7 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
      * 下拉等操作更改头部高度
      */
     private void updateSpringOffsetByscroll(CoordinatorLayout coordinatorLayout, AppBarLayout appBarLayout, int offset) {
-        if (mSpringRecoverAnimator != null && mSpringRecoverAnimator.isRunning()) {
-            mSpringRecoverAnimator.cancel();
-        }
+        stopSpring();
         updateSpringHeaderHeight(coordinatorLayout, appBarLayout, offset);
     }
 
@@ -232,8 +305,10 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
     private void updateSpringHeaderHeight(CoordinatorLayout coordinatorLayout, AppBarLayout appBarLayout, int offset) {
         if (appBarLayout.getHeight() < mPreHeadHeight || offset < 0) return;
         mOffsetSpring = offset;
-        if (mSpringOffsetCallback != null) {
-            mSpringOffsetCallback.springCallback(mOffsetSpring);
+        dispatchSpringOffset(offset);
+        if (mStretchMode == STRETCH_MODE_TRANSFORM) {
+            applySpringTransform(coordinatorLayout, appBarLayout, offset);
+            return;
         }
         CoordinatorLayout.LayoutParams layoutParams = (CoordinatorLayout.LayoutParams) appBarLayout.getLayoutParams();
         layoutParams.height = mPreHeadHeight + offset;
@@ -241,6 +316,109 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
         coordinatorLayout.dispatchDependentViewsChanged(appBarLayout);
     }
 
+    /**
+     * 以绘制时变换代替修改高度：拉伸目标绕顶部中点等比放大 offset 个像素的高度，
+     * 逐级把目标下方的兄弟View下移 offset，再下移依赖AppBarLayout的View（如ViewPager）
+     */
+    private void applySpringTransform(CoordinatorLayout coordinatorLayout, AppBarLayout appBarLayout, int offset) {
+        View target = mStretchTargetId != View.NO_ID
+                ? appBarLayout.findViewById(mStretchTargetId)
+                : appBarLayout.getChildAt(0);
+        if (target == null || target.getHeight() == 0) {
+            return;
+        }
+        int width = target.getWidth();
+        int height = target.getHeight();
+        float scale = 1f + offset / (float) height;
+        ViewCompat.setPivotX(target, width / 2f);
+        ViewCompat.setPivotY(target, 0);
+        ViewCompat.setScaleX(target, scale);
+        ViewCompat.setScaleY(target, scale);
+        if (offset > 0) {
+            //放大后只保留原宽度，效果与修改高度时centerCrop的图片一致
+            int inset = Math.round(width * (1f - 1f / scale) / 2f);
+            mClipBounds.set(inset, 0, width - inset, height);
+            ViewCompat.setClipBounds(target, mClipBounds);
+        } else {
+            ViewCompat.setClipBounds(target, null);
+        }
+
+        View child = target;
+        while (child != appBarLayout) {
+            ViewGroup parent = (ViewGroup) child.getParent();
+            if (offset > 0) {
+                //变换后的内容超出了各级父View的范围
+                disableClipChildren(parent);
+            }
+            for (int i = 0, z = parent.getChildCount(); i < z; i++) {
+                View sibling = parent.getChildAt(i);
+                if (sibling != child && sibling.getTop() >= child.getBottom()) {
+                    ViewCompat.setTranslationY(sibling, offset);
+                }
+            }
+            child = parent;
+        }
+        if (offset > 0) {
+            disableClipChildren(coordinatorLayout);
+        } else {
+            restoreClipChildren();
+        }
+
+        final List<View> dependents = coordinatorLayout.getDependents(appBarLayout);
+        for (int i = 0, size = dependents.size(); i < size; i++) {
+            ViewCompat.setTranslationY(dependents.get(i), offset);
+        }
+    }
+
+    /**
+     * 关闭parent的clipChildren并记下，原本就关闭的不记录。getClipChildren() 需要 API 18，
+     * 更低版本无法读取，按默认值开启处理
+     */
+    private void disableClipChildren(ViewGroup parent) {
+        if (mUnclippedParents.contains(parent)) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT < 18 || parent.getClipChildren()) {
+            parent.setClipChildren(false);
+            mUnclippedParents.add(parent);
+        }
+    }
+
+    /**
+     * 恢复 {@link #disableClipChildren} 关闭的clipChildren
+     */
+    private void restoreClipChildren() {
+        for (int i = 0, size = mUnclippedParents.size(); i < size; i++) {
+            mUnclippedParents.get(i).setClipChildren(true);
+        }
+        mUnclippedParents.clear();
+    }
+
+    @Override
+    public void onDetachedFromLayoutParams() {
+        super.onDetachedFromLayoutParams();
+        stopSpring();
+        restoreClipChildren();
+    }
+
+    /**
+     * 设置形变方式，{@link #STRETCH_MODE_LAYOUT} 或 {@link #STRETCH_MODE_TRANSFORM}，应在未下拉时调用
+     */
+    public void setStretchMode(int stretchMode) {
+        mStretchMode = stretchMode;
+    }
+
+    public int getStretchMode() {
+        return mStretchMode;
+    }
+
+    /**
+     * 变换方式下被拉伸的View，可以是AppBarLayout中任意层级的子View，如头部背景图
+     */
+    public void setStretchTargetId(int stretchTargetId) {
+        mStretchTargetId = stretchTargetId;
+    }
+
     public int getOffsetSpring() {
         return mOffsetSpring;
     }
@@ -249,8 +427,112 @@ public class AppBarLayoutSpringBehavior extends AppBarLayout.Behavior {
         return mSpringOffsetCallback;
     }
 
+    /**
+     * 设置唯一的即时回调，替换之前设置的；与 {@link #addSpringOffsetCallback} 加入的回调互不影响
+     */
     public void setSpringOffsetCallback(SpringOffsetCallback springOffsetCallback) {
+        if (mSpringOffsetCallback != null) {
+            removeSpringOffsetCallback(mSpringOffsetCallback);
+        }
         mSpringOffsetCallback = springOffsetCallback;
+        if (springOffsetCallback != null) {
+            addSpringOffsetCallback(springOffsetCallback, false);
+        }
+    }
+
+    /**
+     * 加入形变偏移回调，已加入时不重复加入
+     *
+     * @param coalesce 为false时每次偏移变化立即回调，一帧内可能多次（触摸和动画各一次）；
+     *                 为true时每帧最多回调一次，在绘制前收到本帧最后的偏移量，适合模糊等开销大的处理
+     */
+    public void addSpringOffsetCallback(SpringOffsetCallback callback, boolean coalesce) {
+        if (coalesce) {
+            mCoalescedCallbacks = appendCallback(mCoalescedCallbacks, callback);
+        } else {
+            mCallbacks = appendCallback(mCallbacks, callback);
+        }
+    }
+
+    public void removeSpringOffsetCallback(SpringOffsetCallback callback) {
+        mCallbacks = removeCallback(mCallbacks, callback);
+        mCoalescedCallbacks = removeCallback(mCoalescedCallbacks, callback);
+        if (callback == mSpringOffsetCallback) {
+            mSpringOffsetCallback = null;
+        }
+        if (mCoalescedCallbacks.length == 0) {
+            mCoalescedDispatch.cancel();
+        }
+    }
+
+    private void dispatchSpringOffset(int offset) {
+        //回调中增删回调只替换数组，不影响本次遍历
+        final SpringOffsetCallback[] callbacks = mCallbacks;
+        for (SpringOffsetCallback callback : callbacks) {
+            callback.springCallback(offset);
+        }
+        if (mCoalescedCallbacks.length > 0) {
+            mCoalescedDispatch.post(offset);
+        }
+    }
+
+    private static SpringOffsetCallback[] appendCallback(SpringOffsetCallback[] callbacks, SpringOffsetCallback callback) {
+        for (SpringOffsetCallback c : callbacks) {
+            if (c == callback) {
+                return callbacks;
+            }
+        }
+        SpringOffsetCallback[] result = new SpringOffsetCallback[callbacks.length + 1];
+        System.arraycopy(callbacks, 0, result, 0, callbacks.length);
+        result[callbacks.length] = callback;
+        return result;
+    }
+
+    private static SpringOffsetCallback[] removeCallback(SpringOffsetCallback[] callbacks, SpringOffsetCallback callback) {
+        for (int i = 0; i < callbacks.length; i++) {
+            if (callbacks[i] == callback) {
+                if (callbacks.length == 1) {
+                    return NO_CALLBACKS;
+                }
+                SpringOffsetCallback[] result = new SpringOffsetCallback[callbacks.length - 1];
+                System.arraycopy(callbacks, 0, result, 0, i);
+                System.arraycopy(callbacks, i + 1, result, i, callbacks.length - i - 1);
+                return result;
+            }
+        }
+        return callbacks;
+    }
+
+    /**
+     * 合并分发：偏移变化时只记下最新值并请求一次帧回调，排在偏移和形变动画之后执行，
+     * 触摸事件引起的变化在同一帧的绘制前送达，弹簧动画引起的变化在同一次帧回调内送达
+     */
+    private final class CoalescedDispatch implements FrameScheduler.FrameCallback {
+        private int mPendingOffset;
+        //上次送达的偏移量，没有变化时不回调
+        private int mDispatchedOffset = -1;
+
+        void post(int offset) {
+            mPendingOffset = offset;
+            FrameScheduler.getInstance().add(this, FrameScheduler.ORDER_DECOR);
+        }
+
+        void cancel() {
+            FrameScheduler.getInstance().remove(this);
+        }
+
+        @Override
+        public boolean doFrame(long frameTimeMillis) {
+            int offset = mPendingOffset;
+            if (offset != mDispatchedOffset) {
+                mDispatchedOffset = offset;
+                final SpringOffsetCallback[] callbacks = mCoalescedCallbacks;
+                for (SpringOffsetCallback callback : callbacks) {
+                    callback.springCallback(offset);
+                }
+            }
+            return false;
+        }
     }
 
     //=================以下AppBarLayout源码部分，由于private只能复制方法修改，大神厉害===================
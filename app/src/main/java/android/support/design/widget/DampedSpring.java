@@ -0,0 +1,168 @@
+package android.support.design.widget;
+
+/**
+ * 阻尼弹簧求解器，质量为 1，参数为刚度和阻尼比
+ * <p>
+ * 每步按解析解推进，与帧间隔无关，帧间隔不稳定或掉帧时也不会发散；
+ * 不分配对象，一个实例可以反复从新的位置和速度开始
+ */
+public class DampedSpring {
+
+    /**
+     * 临界阻尼，最快回到终点且不越过
+     */
+    public static final float DAMPING_RATIO_CRITICAL = 1f;
+    /**
+     * 略带回弹的阻尼比
+     */
+    public static final float DAMPING_RATIO_BOUNCY = 0.5f;
+
+    //位移小于该值且速度小于 VELOCITY_THRESHOLD 时认为静止，单位像素、像素/秒
+    private static final float VALUE_THRESHOLD = 0.5f;
+    private static final float VELOCITY_THRESHOLD = 5f;
+
+    private float mStiffness;
+    private float mDampingRatio;
+
+    private float mValue;
+    private float mVelocity;
+    private float mFinalPosition;
+    private boolean mRunning;
+
+    public DampedSpring(float stiffness, float dampingRatio) {
+        setStiffness(stiffness);
+        setDampingRatio(dampingRatio);
+    }
+
+    public void setStiffness(float stiffness) {
+        if (stiffness <= 0) {
+            throw new IllegalArgumentException("stiffness must be positive");
+        }
+        mStiffness = stiffness;
+    }
+
+    public float getStiffness() {
+        return mStiffness;
+    }
+
+    public void setDampingRatio(float dampingRatio) {
+        if (dampingRatio < 0) {
+            throw new IllegalArgumentException("damping ratio must not be negative");
+        }
+        mDampingRatio = dampingRatio;
+    }
+
+    public float getDampingRatio() {
+        return mDampingRatio;
+    }
+
+    /**
+     * 从 value 以 velocity（单位/秒）出发，向 finalPosition 运动
+     */
+    public void start(float value, float velocity, float finalPosition) {
+        mValue = value;
+        mVelocity = velocity;
+        mFinalPosition = finalPosition;
+        mRunning = !isAtRest();
+        if (!mRunning) {
+            mValue = finalPosition;
+            mVelocity = 0;
+        }
+    }
+
+    /**
+     * 推进 deltaMillis 毫秒，返回是否仍在运动；静止后停在终点
+     */
+    public boolean update(long deltaMillis) {
+        if (!mRunning) {
+            return false;
+        }
+        double t = deltaMillis / 1000.0;
+        double omega = Math.sqrt(mStiffness);
+        double x = mValue - mFinalPosition;
+        double v = mVelocity;
+        double zeta = mDampingRatio;
+        double newX;
+        double newV;
+        if (zeta > 1) {
+            //过阻尼
+            double root = omega * Math.sqrt(zeta * zeta - 1);
+            double gammaPlus = -zeta * omega + root;
+            double gammaMinus = -zeta * omega - root;
+            double coeffB = (gammaMinus * x - v) / (gammaMinus - gammaPlus);
+            double coeffA = x - coeffB;
+            double expMinus = Math.exp(gammaMinus * t);
+            double expPlus = Math.exp(gammaPlus * t);
+            newX = coeffA * expMinus + coeffB * expPlus;
+            newV = coeffA * gammaMinus * expMinus + coeffB * gammaPlus * expPlus;
+        } else if (zeta == 1) {
+            //临界阻尼
+            double coeffB = v + omega * x;
+            double decay = Math.exp(-omega * t);
+            newX = (x + coeffB * t) * decay;
+            newV = coeffB * decay - omega * newX;
+        } else {
+            //欠阻尼
+            double dampedOmega = omega * Math.sqrt(1 - zeta * zeta);
+            double sinCoeff = (zeta * omega * x + v) / dampedOmega;
+            double decay = Math.exp(-zeta * omega * t);
+            double cos = Math.cos(dampedOmega * t);
+            double sin = Math.sin(dampedOmega * t);
+            newX = decay * (x * cos + sinCoeff * sin);
+            newV = -zeta * omega * newX + decay * dampedOmega * (sinCoeff * cos - x * sin);
+        }
+        mValue = (float) (newX + mFinalPosition);
+        mVelocity = (float) newV;
+        if (isAtRest()) {
+            mValue = mFinalPosition;
+            mVelocity = 0;
+            mRunning = false;
+        }
+        return mRunning;
+    }
+
+    /**
+     * 立即停在当前位置
+     */
+    public void cancel() {
+        mRunning = false;
+        mVelocity = 0;
+    }
+
+    /**
+     * 把当前位置限制在 [min, max] 内，碰到边界时速度归零
+     */
+    public void clamp(float min, float max) {
+        if (mValue < min) {
+            mValue = min;
+            mVelocity = 0;
+        } else if (mValue > max) {
+            mValue = max;
+            mVelocity = 0;
+        }
+        if (mRunning && isAtRest()) {
+            mValue = mFinalPosition;
+            mRunning = false;
+        }
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public float getValue() {
+        return mValue;
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    public float getFinalPosition() {
+        return mFinalPosition;
+    }
+
+    private boolean isAtRest() {
+        return Math.abs(mValue - mFinalPosition) < VALUE_THRESHOLD && Math.abs(mVelocity) < VELOCITY_THRESHOLD;
+    }
+}
@@ -0,0 +1,124 @@
+package android.support.design.widget;
+
+import android.animation.ValueAnimator;
+import android.os.Build;
+import android.view.animation.Interpolator;
+
+import java.lang.reflect.Method;
+
+/**
+ * 由 {@link FrameScheduler} 驱动的定时动画，代替逐次创建的ValueAnimator，
+ * 一个实例可以反复启动，运行中不分配对象
+ * <p>
+ * 与ValueAnimator一样，以启动后的第一帧为起点，第一帧的进度为 0；时长乘以开发者选项中的动画时长缩放，
+ * 缩放为 0（关闭动画）时启动即回调终点
+ */
+public abstract class FrameAnimation implements FrameScheduler.FrameCallback {
+
+    //API 17~25 上隐藏的 ValueAnimator.getDurationScale()，取不到时为null
+    private static Method sGetDurationScale;
+    private static boolean sGetDurationScaleFetched;
+
+    private final int mOrder;
+    private Interpolator mInterpolator;
+    private long mDuration;
+    //第一帧到来前为 -1
+    private long mStartTime;
+    private boolean mRunning;
+
+    /**
+     * @param order 在帧内的执行顺序，见 {@link FrameScheduler#ORDER_OFFSET} 等
+     */
+    protected FrameAnimation(int order) {
+        mOrder = order;
+    }
+
+    /**
+     * 从头开始，正在运行时重新计时
+     *
+     * @param duration     未缩放的时长，实际时长按动画时长缩放调整
+     * @param interpolator 为null时线性
+     */
+    public void start(long duration, Interpolator interpolator) {
+        float scale = getDurationScale();
+        mInterpolator = interpolator;
+        if (scale == 0) {
+            //动画已关闭，直接到终点
+            cancel();
+            onUpdate(interpolator != null ? interpolator.getInterpolation(1f) : 1f);
+            return;
+        }
+        mDuration = (long) (duration * scale);
+        mStartTime = -1;
+        mRunning = true;
+        FrameScheduler.getInstance().add(this, mOrder);
+    }
+
+    /**
+     * 停在当前进度，不再回调
+     */
+    public void cancel() {
+        if (mRunning) {
+            mRunning = false;
+            FrameScheduler.getInstance().remove(this);
+        }
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public final boolean doFrame(long frameTimeMillis) {
+        if (!mRunning) {
+            return false;
+        }
+        if (mStartTime < 0) {
+            mStartTime = frameTimeMillis;
+        }
+        float fraction = mDuration > 0 ? (frameTimeMillis - mStartTime) / (float) mDuration : 1f;
+        if (fraction >= 1f) {
+            fraction = 1f;
+            mRunning = false;
+        }
+        onUpdate(mInterpolator != null ? mInterpolator.getInterpolation(fraction) : fraction);
+        return mRunning;
+    }
+
+    /**
+     * 系统的动画时长缩放，与ValueAnimator使用同一个值：API 26 起为公开方法，
+     * API 17~25 反射调用隐藏的同名方法，更低版本或调用失败时为 1
+     */
+    static float getDurationScale() {
+        if (Build.VERSION.SDK_INT >= 26) {
+            return ValueAnimator.getDurationScale();
+        }
+        if (Build.VERSION.SDK_INT < 17) {
+            return 1f;
+        }
+        if (!sGetDurationScaleFetched) {
+            try {
+                sGetDurationScale = ValueAnimator.class.getDeclaredMethod("getDurationScale");
+                sGetDurationScale.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                sGetDurationScale = null;
+            }
+            sGetDurationScaleFetched = true;
+        }
+        if (sGetDurationScale != null) {
+            try {
+                return (Float) sGetDurationScale.invoke(null);
+            } catch (Exception e) {
+                sGetDurationScale = null;
+            }
+        }
+        return 1f;
+    }
+
+    /**
+     * 每帧回调一次，最后一帧的进度为 1
+     *
+     * @param fraction 经插值器转换后的进度
+     */
+    protected abstract void onUpdate(float fraction);
+}
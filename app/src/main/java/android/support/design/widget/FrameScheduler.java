@@ -0,0 +1,276 @@
+package android.support.design.widget;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * 头部各Behavior共用的帧调度器：每个垂直同步信号只请求一次回调，按固定顺序推进所有正在运行的动画，
+ * 没有动画时不再请求回调
+ * <p>
+ * API 16 起使用 Choreographer，API 15 用主线程Handler按约 16ms 的间隔模拟。只能在主线程使用
+ */
+public final class FrameScheduler {
+
+    /**
+     * 每帧的回调
+     */
+    public interface FrameCallback {
+        /**
+         * @param frameTimeMillis 本帧时间，与 {@link SystemClock#uptimeMillis()} 同一时钟
+         * @return 是否还需要下一帧
+         */
+        boolean doFrame(long frameTimeMillis);
+    }
+
+    /**
+     * 改变AppBarLayout偏移或形变的动画，最先执行，后面的动画看到的是本帧的布局状态
+     */
+    public static final int ORDER_OFFSET = 0;
+    /**
+     * 只改变缩放、平移等绘制属性的动画
+     */
+    public static final int ORDER_TRANSFORM = 1;
+    /**
+     * 颜色、遮罩等装饰，最后执行
+     */
+    public static final int ORDER_DECOR = 2;
+
+    //API 15 上模拟的帧间隔
+    private static final long FRAME_INTERVAL = 16;
+
+    private static FrameScheduler sInstance;
+
+    private final Ticker mTicker;
+
+    //按 order 升序排列的回调，同一 order 按加入的先后
+    private FrameCallback[] mCallbacks = new FrameCallback[8];
+    private int[] mOrders = new int[8];
+    private int mCount;
+    //帧回调执行中加入的回调，本帧结束后再并入，下一帧生效
+    private FrameCallback[] mPending = new FrameCallback[4];
+    private int[] mPendingOrders = new int[4];
+    private int mPendingCount;
+    private boolean mTicking;
+    //正在执行的回调的 order
+    private int mCurrentOrder;
+    private boolean mFrameRequested;
+
+    public static FrameScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new FrameScheduler();
+        }
+        return sInstance;
+    }
+
+    private FrameScheduler() {
+        mTicker = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? new ChoreographerTicker()
+                : new HandlerTicker();
+    }
+
+    /**
+     * 加入回调，从下一帧开始每帧执行，直到返回 false 或被移除；已加入时不重复加入。
+     * 帧回调执行中加入且 order 大于正在执行的回调时，本帧内就会执行
+     *
+     * @param order {@link #ORDER_OFFSET}、{@link #ORDER_TRANSFORM} 或 {@link #ORDER_DECOR}
+     */
+    public void add(FrameCallback callback, int order) {
+        if (mTicking && order > mCurrentOrder && indexOf(mCallbacks, mCount, callback) < 0) {
+            //排在正在执行的回调之后，本帧内就会执行，如偏移动画之后的合并分发
+            insert(callback, order);
+            return;
+        }
+        if (mTicking) {
+            //执行中的回调可能在本帧结束后被移除，先记下，帧结束后再判断是否重复
+            if (indexOf(mPending, mPendingCount, callback) < 0) {
+                if (mPendingCount == mPending.length) {
+                    mPending = grow(mPending);
+                    mPendingOrders = grow(mPendingOrders);
+                }
+                mPending[mPendingCount] = callback;
+                mPendingOrders[mPendingCount] = order;
+                mPendingCount++;
+            }
+            return;
+        }
+        if (indexOf(mCallbacks, mCount, callback) < 0) {
+            insert(callback, order);
+        }
+        requestFrame();
+    }
+
+    /**
+     * 移除回调，帧回调执行中也可调用
+     */
+    public void remove(FrameCallback callback) {
+        int index = indexOf(mPending, mPendingCount, callback);
+        if (index >= 0) {
+            mPending[index] = null;
+        }
+        index = indexOf(mCallbacks, mCount, callback);
+        if (index < 0) {
+            return;
+        }
+        if (mTicking) {
+            //执行中只置空，帧结束后统一压缩
+            mCallbacks[index] = null;
+        } else {
+            System.arraycopy(mCallbacks, index + 1, mCallbacks, index, mCount - index - 1);
+            System.arraycopy(mOrders, index + 1, mOrders, index, mCount - index - 1);
+            mCallbacks[--mCount] = null;
+            if (mCount == 0 && mFrameRequested) {
+                mFrameRequested = false;
+                mTicker.cancelFrame();
+            }
+        }
+    }
+
+    public boolean isScheduled(FrameCallback callback) {
+        return indexOf(mCallbacks, mCount, callback) >= 0 || indexOf(mPending, mPendingCount, callback) >= 0;
+    }
+
+    void doFrame(long frameTimeMillis) {
+        mFrameRequested = false;
+        mTicking = true;
+        try {
+            //执行中可能插入排在后面的回调，每次重新读取数量
+            for (int i = 0; i < mCount; i++) {
+                mCurrentOrder = mOrders[i];
+                FrameCallback callback = mCallbacks[i];
+                if (callback != null && !callback.doFrame(frameTimeMillis)) {
+                    mCallbacks[i] = null;
+                }
+            }
+        } finally {
+            mTicking = false;
+            compact();
+            for (int i = 0; i < mPendingCount; i++) {
+                if (mPending[i] != null && indexOf(mCallbacks, mCount, mPending[i]) < 0) {
+                    insert(mPending[i], mPendingOrders[i]);
+                }
+                mPending[i] = null;
+            }
+            mPendingCount = 0;
+            if (mCount > 0) {
+                requestFrame();
+            }
+        }
+    }
+
+    private void requestFrame() {
+        if (!mFrameRequested) {
+            mFrameRequested = true;
+            mTicker.postFrame();
+        }
+    }
+
+    /**
+     * 插入到同 order 的最后一个之后
+     */
+    private void insert(FrameCallback callback, int order) {
+        if (mCount == mCallbacks.length) {
+            mCallbacks = grow(mCallbacks);
+            mOrders = grow(mOrders);
+        }
+        int index = mCount;
+        while (index > 0 && mOrders[index - 1] > order) {
+            mCallbacks[index] = mCallbacks[index - 1];
+            mOrders[index] = mOrders[index - 1];
+            index--;
+        }
+        mCallbacks[index] = callback;
+        mOrders[index] = order;
+        mCount++;
+    }
+
+    private void compact() {
+        int to = 0;
+        for (int i = 0; i < mCount; i++) {
+            if (mCallbacks[i] != null) {
+                mCallbacks[to] = mCallbacks[i];
+                mOrders[to] = mOrders[i];
+                to++;
+            }
+        }
+        for (int i = to; i < mCount; i++) {
+            mCallbacks[i] = null;
+        }
+        mCount = to;
+    }
+
+    private static int indexOf(FrameCallback[] callbacks, int count, FrameCallback callback) {
+        for (int i = 0; i < count; i++) {
+            if (callbacks[i] == callback) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static FrameCallback[] grow(FrameCallback[] array) {
+        FrameCallback[] grown = new FrameCallback[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private interface Ticker {
+        void postFrame();
+
+        void cancelFrame();
+    }
+
+    /**
+     * 只在 API 16 及以上创建，低版本不会加载 Choreographer
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private final class ChoreographerTicker implements Ticker, Choreographer.FrameCallback {
+        private final Choreographer mChoreographer = Choreographer.getInstance();
+
+        @Override
+        public void postFrame() {
+            mChoreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void cancelFrame() {
+            mChoreographer.removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            FrameScheduler.this.doFrame(frameTimeNanos / 1000000);
+        }
+    }
+
+    private final class HandlerTicker implements Ticker, Runnable {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+        private long mLastFrameTime;
+
+        @Override
+        public void postFrame() {
+            long delay = mLastFrameTime + FRAME_INTERVAL - SystemClock.uptimeMillis();
+            mHandler.postDelayed(this, Math.max(0, delay));
+        }
+
+        @Override
+        public void cancelFrame() {
+            mHandler.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            mLastFrameTime = SystemClock.uptimeMillis();
+            doFrame(mLastFrameTime);
+        }
+    }
+}
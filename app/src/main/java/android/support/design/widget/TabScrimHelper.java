@@ -1,7 +1,6 @@
 package android.support.design.widget;
 
 
-import android.animation.ValueAnimator;
 import android.content.res.ColorStateList;
 import android.graphics.Color;
 import android.renderscript.Sampler;
@@ -16,7 +15,10 @@ public class TabScrimHelper implements AppBarLayout.OnOffsetChangedListener {
     private long mScrimAnimationDuration;
     private int mScrimAlpha;
     private boolean mScrimsAreShown;
-    private ValueAnimator mScrimAnimator;
+    private FrameAnimation mScrimAnimator;
+    //动画起止的透明度
+    private int mScrimAnimationFrom;
+    private int mScrimAnimationTo;
     private final int mNormalColor;
     private final int mSelectedColor;
     private int mCollapseTabSelectTextColor;
@@ -72,24 +74,22 @@ public class TabScrimHelper implements AppBarLayout.OnOffsetChangedListener {
 
     private void animateScrim(int targetAlpha) {
         if (mScrimAnimator == null) {
-            mScrimAnimator = new ValueAnimator();
-            mScrimAnimator.setDuration(mScrimAnimationDuration);
-            mScrimAnimator.setInterpolator(
-                    targetAlpha > mScrimAlpha
-                            ? AnimationUtils.FAST_OUT_LINEAR_IN_INTERPOLATOR
-                            : AnimationUtils.LINEAR_OUT_SLOW_IN_INTERPOLATOR);
-            mScrimAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            mScrimAnimator = new FrameAnimation(FrameScheduler.ORDER_DECOR) {
                 @Override
-                public void onAnimationUpdate(ValueAnimator animator) {
-                    setScrimAlpha((Integer) animator.getAnimatedValue());
+                protected void onUpdate(float fraction) {
+                    setScrimAlpha(Math.round(mScrimAnimationFrom + (mScrimAnimationTo - mScrimAnimationFrom) * fraction));
                 }
-            });
+            };
         } else if (mScrimAnimator.isRunning()) {
             mScrimAnimator.cancel();
         }
 
-        mScrimAnimator.setIntValues(mScrimAlpha, targetAlpha);
-        mScrimAnimator.start();
+        mScrimAnimationFrom = mScrimAlpha;
+        mScrimAnimationTo = targetAlpha;
+        mScrimAnimator.start(mScrimAnimationDuration,
+                targetAlpha > mScrimAlpha
+                        ? AnimationUtils.FAST_OUT_LINEAR_IN_INTERPOLATOR
+                        : AnimationUtils.LINEAR_OUT_SLOW_IN_INTERPOLATOR);
     }
 
     void setScrimAlpha(int alpha) {
@@ -1,15 +1,18 @@
 package com.zk.coordinator;
 
-import android.animation.ValueAnimator;
 import android.content.Context;
 import android.support.design.widget.AppBarLayout;
 import android.support.design.widget.CoordinatorLayout;
+import android.support.design.widget.FrameAnimation;
+import android.support.design.widget.FrameScheduler;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.Interpolator;
 
 
 /**
@@ -102,7 +105,7 @@ public class AppbarZoomBehavior extends AppBarLayout.Behavior {
                 consumed[1] = dy;
                 zoomHeaderImageView(child, dy);
             } else {
-                if (valueAnimator == null || !valueAnimator.isRunning()) {
+                if (!mRecoveryAnimation.isRunning()) {
                     super.onNestedPreScroll(coordinatorLayout, child, target, dx, dy, consumed);
                 }
             }
@@ -181,10 +184,22 @@ public class AppbarZoomBehavior extends AppBarLayout.Behavior {
         super.onStopNestedScroll(coordinatorLayout, abl, target);
     }
 
-    ValueAnimator valueAnimator;
+    //ValueAnimator的默认插值器
+    private static final Interpolator RECOVERY_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+    private float mRecoveryFrom;//恢复动画的起始缩放比例
+
+    //恢复动画，由 FrameScheduler 与其他头部动画在同一帧推进，反复使用同一个实例
+    private final FrameAnimation mRecoveryAnimation = new FrameAnimation(FrameScheduler.ORDER_TRANSFORM) {
+        @Override
+        protected void onUpdate(float fraction) {
+            float value = mRecoveryFrom + (1f - mRecoveryFrom) * fraction;
+            ViewCompat.setScaleX(mScaleView, value);
+            ViewCompat.setScaleY(mScaleView, value);
+        }
+    };
 
     /**
-     * 通过属性动画的形式，恢复AppbarLayout、ImageView的原始状态
+     * 恢复AppbarLayout、ImageView的原始状态
      *
      * @param abl
      */
@@ -192,17 +207,8 @@ public class AppbarZoomBehavior extends AppBarLayout.Behavior {
         if (mTotalDy > 0) {
             mTotalDy = 0;
             if (isAnimate) {
-                valueAnimator = ValueAnimator.ofFloat(mScaleValue, 1f).setDuration(220);
-                valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                    @Override
-                    public void onAnimationUpdate(ValueAnimator animation) {
-                        float value = (float) animation.getAnimatedValue();
-                        ViewCompat.setScaleX(mScaleView, value);
-                        ViewCompat.setScaleY(mScaleView, value);
-                        //abl.setBottom((int) (mLastBottom - (mLastBottom - mAppbarHeight) * animation.getAnimatedFraction()));
-                    }
-                });
-                valueAnimator.start();
+                mRecoveryFrom = mScaleValue;
+                mRecoveryAnimation.start(220, RECOVERY_INTERPOLATOR);
             } else {
                 ViewCompat.setScaleX(mScaleView, 1f);
                 ViewCompat.setScaleY(mScaleView, 1f);
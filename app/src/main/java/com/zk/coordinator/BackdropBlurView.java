@@ -0,0 +1,312 @@
+package com.zk.coordinator;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.zk.coordinator.blur.BlurContext;
+import com.zk.coordinator.blur.BlurEngine;
+import com.zk.coordinator.blur.BlurEngines;
+import com.zk.coordinator.blur.RegionBlur;
+
+/**
+ * 背景模糊View：把身后的源View按比例缩小截取后模糊显示，用于折叠后的Toolbar背景
+ * <p>
+ * 截图按缩小后的像素行对齐在源View的坐标上，源View相对本View移动整行时，
+ * 旧截图和旧模糊结果整体平移复用，只截取新露出的行并重新模糊受影响的行；
+ * 不足一行的位移在绘制时用平移补偿。相对位置不变时不截图也不模糊
+ */
+public class BackdropBlurView extends View {
+
+    //默认缩小倍数
+    private static final int DEFAULT_DOWNSAMPLE = 4;
+    //默认模糊半径，按View尺寸计算
+    private static final int DEFAULT_RADIUS = 20;
+
+    private final BlurContext mBlurContext = new BlurContext();
+    private final Canvas mCanvas = new Canvas();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final int[] mSourceLocation = new int[2];
+    private final int[] mLocation = new int[2];
+
+    private View mSource;
+    private int mDownsample = DEFAULT_DOWNSAMPLE;
+    private int mRadius = DEFAULT_RADIUS;
+    private int mOverlayColor = Color.TRANSPARENT;
+    //模糊算法，为null时使用全局默认实现
+    private BlurEngine mEngine;
+
+    //缩小后的截图和模糊结果
+    private Bitmap mCaptureBitmap;
+    private Bitmap mBlurBitmap;
+    private int[] mCapturePixels;
+    private int[] mBlurPixels;
+    private int mScaledWidth;
+    private int mScaledHeight;
+    //截图第 0 行、第 0 列在源View坐标中对应的缩小后行号、列号
+    private int mCaptureRow;
+    private int mCaptureColumn;
+    //本View左上角在源View坐标中的位置
+    private int mOffsetX;
+    private int mOffsetY;
+    private boolean mValid;
+    //关闭时既不截图也不绘制，由使用方在本View可见时打开
+    private boolean mBlurEnabled = true;
+    //截图时源View可能包含本View，此时跳过自身绘制
+    private boolean mCapturing;
+
+    private final ViewTreeObserver.OnPreDrawListener mPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            //透明或关闭时看不到模糊结果，不必每帧截图
+            if (mBlurEnabled && isShown() && getAlpha() > 0) {
+                updateBackdrop();
+            }
+            return true;
+        }
+    };
+
+    public BackdropBlurView(Context context) {
+        super(context);
+    }
+
+    public BackdropBlurView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public BackdropBlurView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * 设置被模糊的源View，通常是在本View下方滚动的内容
+     */
+    public void setSource(View source) {
+        mSource = source;
+        invalidateBackdrop();
+    }
+
+    /**
+     * 缩小倍数，取整数使截图行与源View像素对齐
+     */
+    public void setDownsample(int downsample) {
+        mDownsample = Math.max(1, downsample);
+        invalidateBackdrop();
+    }
+
+    public void setBlurRadius(int radius) {
+        mRadius = Math.max(1, radius);
+        invalidateBackdrop();
+    }
+
+    /**
+     * 叠加在模糊结果上的颜色
+     */
+    public void setOverlayColor(int color) {
+        mOverlayColor = color;
+        invalidate();
+    }
+
+    public void setEngine(BlurEngine engine) {
+        mEngine = engine;
+        invalidateBackdrop();
+    }
+
+    /**
+     * 打开或关闭模糊，关闭后不再截图，也不绘制；如只在Toolbar接近折叠时打开，
+     * 展开时不必每帧截图和模糊。重新打开时整体重新截图
+     */
+    public void setBlurEnabled(boolean enabled) {
+        if (mBlurEnabled == enabled) {
+            return;
+        }
+        mBlurEnabled = enabled;
+        invalidateBackdrop();
+    }
+
+    public boolean isBlurEnabled() {
+        return mBlurEnabled;
+    }
+
+    /**
+     * 源View内容变化但位置不变时调用，下一帧整体重新截图
+     */
+    public void invalidateBackdrop() {
+        mValid = false;
+        invalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(mPreDrawListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnPreDrawListener(mPreDrawListener);
+        release();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mValid = false;
+    }
+
+    private void updateBackdrop() {
+        if (mSource == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+        mSource.getLocationInWindow(mSourceLocation);
+        getLocationInWindow(mLocation);
+        int offsetX = mLocation[0] - mSourceLocation[0];
+        int offsetY = mLocation[1] - mSourceLocation[1];
+        if (mValid && offsetX == mOffsetX && offsetY == mOffsetY) {
+            return;
+        }
+        mOffsetX = offsetX;
+        mOffsetY = offsetY;
+        int column = floorDiv(offsetX, mDownsample);
+        int row = floorDiv(offsetY, mDownsample);
+        if (mValid && column == mCaptureColumn && Math.abs(row - mCaptureRow) < mScaledHeight) {
+            if (row != mCaptureRow) {
+                scroll(row - mCaptureRow);
+            }
+        } else {
+            captureAll(column, row);
+        }
+        invalidate();
+    }
+
+    /**
+     * 整体截图并模糊
+     */
+    private void captureAll(int column, int row) {
+        //多截一行一列，留给不足一行的位移
+        int w = getWidth() / mDownsample + 2;
+        int h = getHeight() / mDownsample + 2;
+        if (mCaptureBitmap == null || mScaledWidth != w || mScaledHeight != h) {
+            mCaptureBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            mBlurBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            mCapturePixels = new int[w * h];
+            mBlurPixels = new int[w * h];
+            mScaledWidth = w;
+            mScaledHeight = h;
+        }
+        mCaptureColumn = column;
+        mCaptureRow = row;
+        capture(0, h);
+        System.arraycopy(mCapturePixels, 0, mBlurPixels, 0, w * h);
+        engine().blur(mBlurPixels, w, h, scaledRadius(), mBlurContext);
+        mBlurBitmap.setPixels(mBlurPixels, 0, w, 0, 0, w, h);
+        mValid = true;
+    }
+
+    /**
+     * 源View相对移动了 rows 个缩小后的行：平移旧截图和旧结果，只截取新露出的行，
+     * 只重新模糊依赖新行或边界钳位发生变化的行
+     */
+    private void scroll(int rows) {
+        int w = mScaledWidth;
+        int h = mScaledHeight;
+        int radius = scaledRadius();
+        int n = Math.abs(rows);
+        mCaptureRow += rows;
+        if (rows > 0) {
+            //内容上移，新行出现在底部
+            System.arraycopy(mCapturePixels, n * w, mCapturePixels, 0, (h - n) * w);
+            System.arraycopy(mBlurPixels, n * w, mBlurPixels, 0, (h - n) * w);
+            capture(h - n, h);
+            reblur(0, radius);
+            reblur(h - n - radius, h);
+        } else {
+            //内容下移，新行出现在顶部
+            System.arraycopy(mCapturePixels, 0, mCapturePixels, n * w, (h - n) * w);
+            System.arraycopy(mBlurPixels, 0, mBlurPixels, n * w, (h - n) * w);
+            capture(0, n);
+            reblur(0, n + radius);
+            reblur(h - radius, h);
+        }
+        mBlurBitmap.setPixels(mBlurPixels, 0, w, 0, 0, w, h);
+    }
+
+    private void reblur(int top, int bottom) {
+        RegionBlur.blur(mCapturePixels, mBlurPixels, mScaledWidth, mScaledHeight,
+                0, top, mScaledWidth, bottom, scaledRadius(), mBlurContext, engine());
+    }
+
+    /**
+     * 把源View绘制到截图的 [top, bottom) 行并读出像素
+     */
+    private void capture(int top, int bottom) {
+        int w = mScaledWidth;
+        mCanvas.setBitmap(mCaptureBitmap);
+        int save = mCanvas.save();
+        mCanvas.clipRect(0, top, w, bottom);
+        mCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        float scale = 1f / mDownsample;
+        mCanvas.scale(scale, scale);
+        mCanvas.translate(-mCaptureColumn * mDownsample, -mCaptureRow * mDownsample);
+        mCapturing = true;
+        try {
+            mSource.draw(mCanvas);
+        } finally {
+            mCapturing = false;
+            mCanvas.restoreToCount(save);
+            mCanvas.setBitmap(null);
+        }
+        mCaptureBitmap.getPixels(mCapturePixels, top * w, w, 0, top, w, bottom - top);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mCapturing || !mBlurEnabled) {
+            return;
+        }
+        if (mValid && mBlurBitmap != null) {
+            int save = canvas.save();
+            canvas.clipRect(0, 0, getWidth(), getHeight());
+            canvas.translate(mCaptureColumn * mDownsample - mOffsetX, mCaptureRow * mDownsample - mOffsetY);
+            canvas.scale(mDownsample, mDownsample);
+            canvas.drawBitmap(mBlurBitmap, 0, 0, mPaint);
+            canvas.restoreToCount(save);
+        }
+        if (mOverlayColor != Color.TRANSPARENT) {
+            canvas.drawColor(mOverlayColor);
+        }
+    }
+
+    private BlurEngine engine() {
+        return mEngine != null ? mEngine : BlurEngines.getDefault();
+    }
+
+    private int scaledRadius() {
+        return Math.max(1, Math.round(mRadius / (float) mDownsample));
+    }
+
+    private static int floorDiv(int a, int b) {
+        int q = a / b;
+        return (a % b != 0 && (a < 0) != (b < 0)) ? q - 1 : q;
+    }
+
+    /**
+     * 释放截图和缓冲，下一帧会重新截图
+     */
+    public void release() {
+        mCaptureBitmap = null;
+        mBlurBitmap = null;
+        mCapturePixels = null;
+        mBlurPixels = null;
+        mScaledWidth = mScaledHeight = 0;
+        mValid = false;
+        mBlurContext.release();
+    }
+}
@@ -0,0 +1,285 @@
+package com.zk.coordinator;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.zk.coordinator.blur.BlurContext;
+import com.zk.coordinator.blur.BlurEngine;
+import com.zk.coordinator.blur.BlurEngines;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 列表缩略图批量模糊：绑定时提交请求，固定数量的工作线程按离可见区域的距离依次处理，结果回到主线程
+ * <p>
+ * 队列有上限，满了以后丢弃离可见区域最远的请求；同一目标的新请求替换旧请求，
+ * ViewHolder被回收时调用 {@link #cancel(Object)} 丢弃排队中的请求并取消计算中的请求。
+ * 除工作线程外的方法只能在主线程调用
+ */
+public class BatchBlurService {
+
+    public interface Callback {
+        /**
+         * 在主线程回调，blurred 是新建的Bitmap，归调用方所有
+         */
+        void onBlurred(Object target, Bitmap blurred);
+    }
+
+    //默认队列上限，约为几屏的条目数
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final int mCapacity;
+    //模糊算法，为null时使用全局默认实现
+    private final BlurEngine mEngine;
+    private final Worker[] mWorkers;
+
+    //以下字段由 this 加锁保护
+    private final List<Request> mQueue = new ArrayList<>();
+    private final Map<Object, Request> mRequests = new HashMap<>();
+    private int mFirstVisible;
+    private int mLastVisible = Integer.MAX_VALUE;
+    private boolean mShutdown;
+    private long mDroppedCount;
+    private long mCompletedCount;
+
+    public BatchBlurService() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), DEFAULT_CAPACITY, null);
+    }
+
+    public BatchBlurService(int workers, int capacity, BlurEngine engine) {
+        mCapacity = Math.max(1, capacity);
+        mEngine = engine;
+        mWorkers = new Worker[Math.max(1, workers)];
+        for (int i = 0; i < mWorkers.length; i++) {
+            mWorkers[i] = new Worker("batch-blur-" + (i + 1));
+            mWorkers[i].start();
+        }
+    }
+
+    /**
+     * 提交一次模糊，替换同一目标之前的请求
+     *
+     * @param target   请求的归属，通常是ViewHolder或其中的ImageView
+     * @param position 条目在列表中的位置，用于按可见区域排优先级
+     */
+    public synchronized void submit(Object target, int position, Bitmap source, int radius, Callback callback) {
+        if (mShutdown) {
+            return;
+        }
+        cancelLocked(target);
+        if (mQueue.size() >= mCapacity) {
+            int worst = worstIndexLocked();
+            if (distanceLocked(mQueue.get(worst).position) <= distanceLocked(position)) {
+                //新请求比队列中所有请求都远，直接丢弃
+                mDroppedCount++;
+                return;
+            }
+            Request dropped = mQueue.remove(worst);
+            mRequests.remove(dropped.target);
+            mDroppedCount++;
+        }
+        Request request = new Request(target, position, source, radius, callback);
+        mQueue.add(request);
+        mRequests.put(target, request);
+        notify();
+    }
+
+    /**
+     * 可见区域变化时调用，例如在RecyclerView的滚动回调中传入首尾可见位置
+     */
+    public synchronized void setVisibleRange(int first, int last) {
+        mFirstVisible = first;
+        mLastVisible = last;
+    }
+
+    /**
+     * 丢弃 target 排队中的请求，取消计算中的请求，已完成但未回调的结果也不再回调
+     */
+    public synchronized void cancel(Object target) {
+        cancelLocked(target);
+    }
+
+    /**
+     * 丢弃全部请求并停止工作线程
+     */
+    public synchronized void shutdown() {
+        mShutdown = true;
+        for (Request request : mRequests.values()) {
+            request.cancel();
+        }
+        mQueue.clear();
+        mRequests.clear();
+        notifyAll();
+    }
+
+    /**
+     * 因队列已满被丢弃的请求数
+     */
+    public synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    public synchronized long getCompletedCount() {
+        return mCompletedCount;
+    }
+
+    private void cancelLocked(Object target) {
+        Request request = mRequests.remove(target);
+        if (request != null) {
+            request.cancel();
+            mQueue.remove(request);
+        }
+    }
+
+    /**
+     * 离可见区域的距离，可见范围内为 0
+     */
+    private int distanceLocked(int position) {
+        if (position < mFirstVisible) {
+            return mFirstVisible - position;
+        }
+        if (position > mLastVisible) {
+            return position - mLastVisible;
+        }
+        return 0;
+    }
+
+    private int worstIndexLocked() {
+        int worst = 0;
+        for (int i = 1, n = mQueue.size(); i < n; i++) {
+            if (distanceLocked(mQueue.get(i).position) > distanceLocked(mQueue.get(worst).position)) {
+                worst = i;
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * 取出离可见区域最近的请求，距离相同时先提交的优先；队列为空时等待
+     */
+    private synchronized Request take(BlurContext context) throws InterruptedException {
+        while (mQueue.isEmpty() && !mShutdown) {
+            wait();
+        }
+        if (mShutdown) {
+            return null;
+        }
+        int best = 0;
+        for (int i = 1, n = mQueue.size(); i < n; i++) {
+            if (distanceLocked(mQueue.get(i).position) < distanceLocked(mQueue.get(best).position)) {
+                best = i;
+            }
+        }
+        Request request = mQueue.remove(best);
+        context.clearCanceled();
+        request.context = context;
+        return request;
+    }
+
+    /**
+     * 计算结束，请求仍有效时返回 true；请求留在表中直到回调，期间仍可被取消。
+     * 计算失败或已取消时不会回调，请求仍在表中的话一并移除，不计入完成数
+     */
+    private synchronized boolean finish(Request request, boolean succeeded) {
+        request.context = null;
+        if (!succeeded || request.canceled) {
+            //target 已提交新请求时表中是新请求，不能移除
+            if (mRequests.get(request.target) == request) {
+                mRequests.remove(request.target);
+            }
+            return false;
+        }
+        mCompletedCount++;
+        return true;
+    }
+
+    /**
+     * 主线程回调前移除请求，请求已被取消或替换时返回 false
+     */
+    private synchronized boolean deliver(Request request) {
+        if (request.canceled) {
+            return false;
+        }
+        mRequests.remove(request.target);
+        return true;
+    }
+
+    private static final class Request {
+        final Object target;
+        final int position;
+        final Bitmap source;
+        final int radius;
+        final Callback callback;
+        //计算中时为工作线程的上下文，由外部类加锁保护
+        BlurContext context;
+        volatile boolean canceled;
+
+        Request(Object target, int position, Bitmap source, int radius, Callback callback) {
+            this.target = target;
+            this.position = position;
+            this.source = source;
+            this.radius = radius;
+            this.callback = callback;
+        }
+
+        void cancel() {
+            canceled = true;
+            if (context != null) {
+                context.cancel();
+            }
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final BlurContext mContext = new BlurContext();
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            try {
+                Request request;
+                while ((request = take(mContext)) != null) {
+                    process(request);
+                }
+            } catch (InterruptedException ignored) {
+                //退出
+            } finally {
+                mContext.release();
+            }
+        }
+
+        private void process(final Request request) {
+            BlurEngine engine = mEngine != null ? mEngine : BlurEngines.getDefault();
+            final Bitmap blurred = BlurUtil.fastblur(null, request.source, request.radius, mContext, false, engine);
+            if (blurred == null) {
+                finish(request, false);
+                return;
+            }
+            if (!finish(request, true)) {
+                blurred.recycle();
+                return;
+            }
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (deliver(request)) {
+                        request.callback.onBlurred(request.target, blurred);
+                    } else {
+                        blurred.recycle();
+                    }
+                }
+            });
+        }
+    }
+}
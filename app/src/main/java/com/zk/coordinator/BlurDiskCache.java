@@ -0,0 +1,239 @@
+package com.zk.coordinator;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 模糊结果的磁盘缓存，冷启动时直接读回上次的结果，不必重新模糊
+ * <p>
+ * 每个结果一个文件：32 字节文件头后紧跟 copyPixelsToBuffer 得到的原始像素，
+ * 读取时把文件映射到内存，用 copyPixelsFromBuffer 直接拷进Bitmap，没有解码和颜色转换。
+ * 总大小超过上限时按最后访问时间淘汰
+ */
+public class BlurDiskCache {
+
+    private static final String DIR_NAME = "blur";
+    //默认上限
+    private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    private static final int MAGIC = 0x424c5552;
+    private static final int VERSION = 1;
+    //写入键中的结果版本，模糊实现的输出改变时加一，旧结果不再命中
+    private static final int KEY_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private static BlurDiskCache sInstance;
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+
+    public static synchronized BlurDiskCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new BlurDiskCache(new File(context.getApplicationContext().getCacheDir(), DIR_NAME),
+                    DEFAULT_MAX_BYTES);
+        }
+        return sInstance;
+    }
+
+    public BlurDiskCache(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * 由结果版本、模糊实现、原图标识、输出尺寸和半径组成的键
+     *
+     * @param engineId 模糊实现的标识，内置实现用 {@link com.zk.coordinator.blur.BlurEngines#name}
+     */
+    public static String key(String engineId, String sourceKey, int width, int height, int radius) {
+        return "v" + KEY_VERSION + '|' + engineId + '|' + sourceKey + '|' + width + 'x' + height + '|' + radius;
+    }
+
+    /**
+     * 读取缓存的结果，没有或文件损坏时返回null；返回的Bitmap是新建的，归调用方所有
+     */
+    public synchronized Bitmap get(String key) {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                file.delete();
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            int magic = buffer.getInt();
+            int version = buffer.getInt();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            Bitmap.Config config = configOf(buffer.getInt());
+            int byteCount = buffer.getInt();
+            if (magic != MAGIC || version != VERSION || width <= 0 || height <= 0 || config == null
+                    || byteCount != length - HEADER_SIZE) {
+                file.delete();
+                return null;
+            }
+            buffer.position(HEADER_SIZE);
+            Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+            if (bitmap.getRowBytes() * height != byteCount) {
+                bitmap.recycle();
+                file.delete();
+                return null;
+            }
+            bitmap.copyPixelsFromBuffer(buffer);
+            file.setLastModified(System.currentTimeMillis());
+            return bitmap;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(raf);
+        }
+    }
+
+    /**
+     * 写入结果，先写临时文件再改名，写入中断不会留下残缺的缓存
+     */
+    public synchronized void put(String key, Bitmap bitmap) {
+        int config = configId(bitmap.getConfig());
+        if (config == 0 || (!mDirectory.isDirectory() && !mDirectory.mkdirs())) {
+            return;
+        }
+        int byteCount = bitmap.getRowBytes() * bitmap.getHeight();
+        File file = fileFor(key);
+        File tmp = new File(mDirectory, file.getName() + ".tmp");
+        FileOutputStream out = null;
+        boolean written = false;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_SIZE + byteCount);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(bitmap.getWidth()).putInt(bitmap.getHeight())
+                    .putInt(config).putInt(byteCount);
+            buffer.position(HEADER_SIZE);
+            bitmap.copyPixelsToBuffer(buffer);
+            buffer.flip();
+            out = new FileOutputStream(tmp);
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            written = true;
+        } catch (IOException e) {
+            written = false;
+        } finally {
+            closeQuietly(out);
+        }
+        if (!written || !tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        trimToSize(mMaxBytes);
+    }
+
+    public synchronized void remove(String key) {
+        fileFor(key).delete();
+    }
+
+    /**
+     * 按最后访问时间从旧到新删除，直到总大小不超过 maxBytes
+     */
+    public synchronized void trimToSize(long maxBytes) {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < files.length && total > maxBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * 键的MD5作为文件名
+     */
+    private File fileFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return new File(mDirectory, name.toString());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return new File(mDirectory, Integer.toHexString(key.hashCode()));
+        }
+    }
+
+    private static int configId(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) {
+            return 1;
+        } else if (config == Bitmap.Config.RGB_565) {
+            return 2;
+        } else if (config == Bitmap.Config.ALPHA_8) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private static Bitmap.Config configOf(int id) {
+        switch (id) {
+            case 1:
+                return Bitmap.Config.ARGB_8888;
+            case 2:
+                return Bitmap.Config.RGB_565;
+            case 3:
+                return Bitmap.Config.ALPHA_8;
+            default:
+                return null;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                //忽略
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.zk.coordinator;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.zk.coordinator.blur.BlurContext;
+import com.zk.coordinator.blur.BlurEngine;
+import com.zk.coordinator.blur.BlurEngines;
+
+/**
+ * 分级模糊Drawable：后台预先算好若干个半径的模糊图，
+ * 每帧只在相邻两级之间做透明度混合，不再逐帧模糊
+ * <p>
+ * 适合弹簧下拉时半径连续变化的头部背景
+ */
+public class BlurLevelDrawable extends Drawable {
+
+    //默认预计算的半径
+    public static final int[] DEFAULT_RADII = {0, 5, 10, 15, 20};
+
+    private final Bitmap mSource;
+    private final int[] mRadii;
+    //各级模糊图，0半径直接使用原图，其余计算完成前为null
+    private final Bitmap[] mLevels;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    //磁盘缓存及原图标识，为null时不使用磁盘缓存
+    private final BlurDiskCache mDiskCache;
+    private final String mSourceKey;
+
+    private float mBlurRadius;
+    private int mAlpha = 0xFF;
+    private volatile boolean mReleased;
+
+    /**
+     * @param radii 升序的半径数组
+     * @param scale 模糊级别的缩放比例，绘制时由Canvas放大
+     */
+    public BlurLevelDrawable(Bitmap source, int[] radii, float scale) {
+        this(source, radii, scale, null, null);
+    }
+
+    /**
+     * 各级模糊图先从磁盘缓存读取，没有时计算后写入，冷启动不必重新模糊
+     *
+     * @param sourceKey 原图的稳定标识，如资源id
+     */
+    public BlurLevelDrawable(Bitmap source, int[] radii, float scale, BlurDiskCache diskCache, String sourceKey) {
+        mSource = source;
+        mDiskCache = diskCache;
+        mSourceKey = sourceKey;
+        mRadii = radii.clone();
+        mLevels = new Bitmap[mRadii.length];
+        for (int i = 0; i < mRadii.length; i++) {
+            if (mRadii[i] < 1) {
+                mLevels[i] = source;
+            }
+        }
+        precompute(scale);
+    }
+
+    private void precompute(final float scale) {
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                int w = Math.max(1, Math.round(mSource.getWidth() * scale));
+                int h = Math.max(1, Math.round(mSource.getHeight() * scale));
+                Bitmap scaled = null;
+                BlurContext blurContext = new BlurContext();
+                //键和计算使用同一个实现，中途更换默认实现也不会写入错误的键
+                BlurEngine engine = BlurEngines.getDefault();
+                String engineId = BlurEngines.name(engine);
+                for (int i = 0; i < mRadii.length && !mReleased; i++) {
+                    if (mRadii[i] < 1) {
+                        continue;
+                    }
+                    int radius = Math.max(1, Math.round(mRadii[i] * scale));
+                    String key = mDiskCache != null ? BlurDiskCache.key(engineId, mSourceKey, w, h, radius) : null;
+                    Bitmap blurred = key != null ? mDiskCache.get(key) : null;
+                    if (blurred == null) {
+                        if (scaled == null) {
+                            scaled = Bitmap.createScaledBitmap(mSource, w, h, true);
+                        }
+                        blurred = BlurUtil.fastblur(null, scaled, radius, blurContext, false, engine);
+                        if (key != null) {
+                            mDiskCache.put(key, blurred);
+                        }
+                    }
+                    final Bitmap level = blurred;
+                    final int index = i;
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            mLevels[index] = level;
+                            invalidateSelf();
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * 设置当前模糊半径，只触发重绘
+     */
+    public void setBlurRadius(float radius) {
+        if (mBlurRadius != radius) {
+            mBlurRadius = radius;
+            invalidateSelf();
+        }
+    }
+
+    public float getBlurRadius() {
+        return mBlurRadius;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        Rect bounds = getBounds();
+        int upper = 0;
+        while (upper < mRadii.length - 1 && mRadii[upper] < mBlurRadius) {
+            upper++;
+        }
+        int lower = upper > 0 ? upper - 1 : 0;
+        Bitmap lowerLevel = readyLevel(lower);
+        mPaint.setAlpha(mAlpha);
+        canvas.drawBitmap(lowerLevel, null, bounds, mPaint);
+
+        if (upper != lower && mLevels[upper] != null) {
+            float fraction = (mBlurRadius - mRadii[lower]) / (float) (mRadii[upper] - mRadii[lower]);
+            fraction = Math.max(0f, Math.min(1f, fraction));
+            if (fraction > 0) {
+                mPaint.setAlpha((int) (mAlpha * fraction));
+                canvas.drawBitmap(mLevels[upper], null, bounds, mPaint);
+            }
+        }
+    }
+
+    /**
+     * 目标级别还没算好时退回最近的已完成的低级别
+     */
+    private Bitmap readyLevel(int index) {
+        for (int i = index; i >= 0; i--) {
+            if (mLevels[i] != null) {
+                return mLevels[i];
+            }
+        }
+        return mSource;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mSource.getWidth();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mSource.getHeight();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mAlpha = alpha;
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /**
+     * 停止后台计算
+     */
+    public void release() {
+        mReleased = true;
+    }
+}
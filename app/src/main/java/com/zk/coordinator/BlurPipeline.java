@@ -0,0 +1,114 @@
+package com.zk.coordinator;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.zk.coordinator.blur.BlurContext;
+import com.zk.coordinator.blur.BlurEngine;
+import com.zk.coordinator.blur.BlurEngines;
+
+/**
+ * 缩小-模糊-放大 管线：先按比例缩小到复用的小图上，用等比缩小的半径模糊，
+ * 需要时再用双线性过滤放大回原尺寸
+ * <p>
+ * 返回的Bitmap由管线持有并在下次调用时复用，调用方不要recycle；非线程安全
+ */
+public class BlurPipeline {
+
+    //缩放比例，(0, 1]
+    private final float mScale;
+    //是否放大回原尺寸
+    private final boolean mUpscale;
+
+    private final BlurContext mBlurContext = new BlurContext();
+    private final Canvas mCanvas = new Canvas();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect mSrcRect = new Rect();
+    private final Rect mDstRect = new Rect();
+
+    //缩小后的复用图
+    private Bitmap mScaledBitmap;
+    //放大后的复用图
+    private Bitmap mOutputBitmap;
+    //模糊算法，为null时使用全局默认实现
+    private BlurEngine mEngine;
+
+    public BlurPipeline(float scale, boolean upscale) {
+        if (scale <= 0 || scale > 1) {
+            throw new IllegalArgumentException("scale must be in (0, 1]: " + scale);
+        }
+        mScale = scale;
+        mUpscale = upscale;
+    }
+
+    public float getScale() {
+        return mScale;
+    }
+
+    public void setEngine(BlurEngine engine) {
+        mEngine = engine;
+    }
+
+    /**
+     * 模糊source，radius按原图尺寸计算，radius小于1时直接返回source
+     */
+    public Bitmap blur(Bitmap source, int radius) {
+        if (radius < 1) {
+            return source;
+        }
+        int srcWidth = source.getWidth();
+        int srcHeight = source.getHeight();
+        int w = Math.max(1, Math.round(srcWidth * mScale));
+        int h = Math.max(1, Math.round(srcHeight * mScale));
+        int scaledRadius = Math.max(1, Math.round(radius * mScale));
+
+        mScaledBitmap = obtain(mScaledBitmap, w, h);
+        mScaledBitmap.eraseColor(Color.TRANSPARENT);
+        mSrcRect.set(0, 0, srcWidth, srcHeight);
+        mDstRect.set(0, 0, w, h);
+        mCanvas.setBitmap(mScaledBitmap);
+        mCanvas.drawBitmap(source, mSrcRect, mDstRect, mPaint);
+
+        int[] pix = mBlurContext.obtainPixels(w, h);
+        mScaledBitmap.getPixels(pix, 0, w, 0, 0, w, h);
+        BlurEngine engine = mEngine != null ? mEngine : BlurEngines.getDefault();
+        engine.blur(pix, w, h, scaledRadius, mBlurContext);
+        mScaledBitmap.setPixels(pix, 0, w, 0, 0, w, h);
+
+        if (!mUpscale) {
+            mCanvas.setBitmap(null);
+            return mScaledBitmap;
+        }
+        mOutputBitmap = obtain(mOutputBitmap, srcWidth, srcHeight);
+        mOutputBitmap.eraseColor(Color.TRANSPARENT);
+        mSrcRect.set(0, 0, w, h);
+        mDstRect.set(0, 0, srcWidth, srcHeight);
+        mCanvas.setBitmap(mOutputBitmap);
+        mCanvas.drawBitmap(mScaledBitmap, mSrcRect, mDstRect, mPaint);
+        mCanvas.setBitmap(null);
+        return mOutputBitmap;
+    }
+
+    /**
+     * 尺寸一致时复用，否则新建；旧图可能仍被显示，不在这里recycle
+     */
+    private static Bitmap obtain(Bitmap pooled, int w, int h) {
+        if (pooled != null && !pooled.isRecycled()
+                && pooled.getWidth() == w && pooled.getHeight() == h) {
+            return pooled;
+        }
+        return Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * 释放复用的图片和缓冲
+     */
+    public void release() {
+        mScaledBitmap = null;
+        mOutputBitmap = null;
+        mBlurContext.release();
+    }
+}
@@ -0,0 +1,139 @@
+package com.zk.coordinator;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+/**
+ * 模糊结果缓存，按原图标识、尺寸、半径和缩放比例缓存，
+ * 以字节数为上限按LRU淘汰，上限按设备内存等级计算
+ * <p>
+ * 缓存中的Bitmap是共享的，取出后不要修改或recycle
+ */
+public class BlurResultCache {
+
+    //占应用内存等级的比例
+    private static final int MEMORY_CLASS_DIVIDER = 8;
+
+    private static BlurResultCache sInstance;
+
+    private final LruCache<Key, Bitmap> mCache;
+
+    public static synchronized BlurResultCache getInstance(Context context) {
+        if (sInstance == null) {
+            ActivityManager am = (ActivityManager) context.getApplicationContext()
+                    .getSystemService(Context.ACTIVITY_SERVICE);
+            int maxBytes = am.getMemoryClass() * 1024 * 1024 / MEMORY_CLASS_DIVIDER;
+            sInstance = new BlurResultCache(maxBytes);
+        }
+        return sInstance;
+    }
+
+    public BlurResultCache(int maxBytes) {
+        mCache = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * 按Bitmap的generationId查找，同一Bitmap未被修改时命中
+     */
+    public Bitmap get(Bitmap source, int radius, float scale) {
+        return mCache.get(Key.of(source, radius, scale));
+    }
+
+    public void put(Bitmap source, int radius, float scale, Bitmap blurred) {
+        mCache.put(Key.of(source, radius, scale), blurred);
+    }
+
+    /**
+     * 按调用方提供的稳定标识（如资源id、url）查找，旋转屏幕、重建Fragment后重新解码的图也能命中
+     */
+    public Bitmap get(String sourceKey, int width, int height, int radius, float scale) {
+        return mCache.get(new Key(sourceKey, width, height, radius, scale));
+    }
+
+    public void put(String sourceKey, int width, int height, int radius, float scale, Bitmap blurred) {
+        mCache.put(new Key(sourceKey, width, height, radius, scale), blurred);
+    }
+
+    public int hitCount() {
+        return mCache.hitCount();
+    }
+
+    public int missCount() {
+        return mCache.missCount();
+    }
+
+    public int evictionCount() {
+        return mCache.evictionCount();
+    }
+
+    /**
+     * 当前占用字节数
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    public void trimToSize(int maxBytes) {
+        mCache.trimToSize(maxBytes);
+    }
+
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    @Override
+    public String toString() {
+        return mCache.toString();
+    }
+
+    private static final class Key {
+        final String sourceKey;
+        final int width;
+        final int height;
+        final int radius;
+        final float scale;
+
+        Key(String sourceKey, int width, int height, int radius, float scale) {
+            this.sourceKey = sourceKey;
+            this.width = width;
+            this.height = height;
+            this.radius = radius;
+            this.scale = scale;
+        }
+
+        static Key of(Bitmap source, int radius, float scale) {
+            return new Key("gen:" + source.getGenerationId(), source.getWidth(), source.getHeight(),
+                    radius, scale);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return width == key.width && height == key.height && radius == key.radius
+                    && Float.compare(scale, key.scale) == 0 && sourceKey.equals(key.sourceKey);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = sourceKey.hashCode();
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + radius;
+            result = 31 * result + Float.floatToIntBits(scale);
+            return result;
+        }
+    }
+}
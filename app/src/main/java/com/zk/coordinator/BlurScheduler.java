@@ -0,0 +1,226 @@
+package com.zk.coordinator;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.zk.coordinator.blur.BlurContext;
+import com.zk.coordinator.blur.BlurEngine;
+import com.zk.coordinator.blur.BlurEngines;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 后台模糊调度：同一目标的新请求覆盖还在排队的旧请求，并取消正在计算的旧请求，
+ * 取消在模糊的条带之间生效；结果经原子引用交回主线程，只有最新一次请求的结果会被回调
+ * <p>
+ * 目标最新的请求处理完且回调后，槽位连同其工作缓冲一起移除，不再持有目标，
+ * 生命周期长于Activity的调度器不会因此留住其中的View
+ * <p>
+ * submit、cancel、shutdown 只能在主线程调用
+ */
+public class BlurScheduler {
+
+    public interface Callback {
+        /**
+         * 在主线程回调，blurred 是新建的Bitmap，归调用方所有
+         */
+        void onBlurred(Bitmap blurred);
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor;
+    //模糊算法，为null时使用全局默认实现
+    private final BlurEngine mEngine;
+    //每个目标一个槽位，只在主线程访问，只保留还有请求未处理完的目标
+    private final Map<Object, Slot> mSlots = new HashMap<>();
+
+    public BlurScheduler() {
+        this(null);
+    }
+
+    public BlurScheduler(BlurEngine engine) {
+        mEngine = engine;
+        mExecutor = Executors.newSingleThreadExecutor(new WorkerFactory());
+    }
+
+    /**
+     * 为 target 提交一次模糊，覆盖该目标之前尚未完成的请求；radius小于1时只取消旧请求，不回调
+     *
+     * @param target 请求的归属，如要显示结果的View，用作合并的键
+     */
+    public void submit(Object target, Bitmap source, int radius, Callback callback) {
+        Slot slot = mSlots.get(target);
+        if (slot == null) {
+            slot = new Slot(target);
+            mSlots.put(target, slot);
+        }
+        //先更新代数并取消，再发布请求，保证工作线程取到新请求之后不会再看到针对旧请求的取消
+        Request request = new Request(source, radius, callback, slot.generation.incrementAndGet());
+        slot.context.cancel();
+        slot.pending.set(request);
+        if (slot.scheduled.compareAndSet(false, true)) {
+            mExecutor.execute(slot);
+        }
+    }
+
+    /**
+     * 取消 target 排队中和计算中的请求，已经投递但还没回调的结果也会被丢弃
+     */
+    public void cancel(Object target) {
+        Slot slot = mSlots.remove(target);
+        if (slot != null) {
+            slot.generation.incrementAndGet();
+            slot.context.cancel();
+            slot.pending.set(null);
+        }
+    }
+
+    /**
+     * 取消全部请求并停止工作线程
+     */
+    public void shutdown() {
+        for (Slot slot : mSlots.values()) {
+            slot.generation.incrementAndGet();
+            slot.context.cancel();
+            slot.pending.set(null);
+        }
+        mSlots.clear();
+        mExecutor.shutdown();
+    }
+
+    private static final class Request {
+        final Bitmap source;
+        final int radius;
+        final Callback callback;
+        final int generation;
+        //模糊结果，经 Slot.done 发布给主线程
+        Bitmap result;
+
+        Request(Bitmap source, int radius, Callback callback, int generation) {
+            this.source = source;
+            this.radius = radius;
+            this.callback = callback;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * 一个目标的槽位：pending 只保留最新的待处理请求，done 只保留最新的已完成请求
+     */
+    private final class Slot implements Runnable {
+        final Object target;
+        //主线程每次提交或取消时递增
+        final AtomicInteger generation = new AtomicInteger();
+        //工作线程处理完（得到结果或失败）的最后一个请求的代数
+        final AtomicInteger finished = new AtomicInteger();
+        final AtomicReference<Request> pending = new AtomicReference<>();
+        final AtomicReference<Request> done = new AtomicReference<>();
+        //是否已排入工作线程
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        //是否已向主线程投递
+        final AtomicBoolean posted = new AtomicBoolean();
+        //只在工作线程使用，取消标记可由主线程设置
+        final BlurContext context = new BlurContext();
+
+        final Runnable deliver = new Runnable() {
+            @Override
+            public void run() {
+                posted.set(false);
+                Request request = done.getAndSet(null);
+                if (request != null) {
+                    if (request.generation == generation.get()) {
+                        request.callback.onBlurred(request.result);
+                    } else {
+                        request.result.recycle();
+                    }
+                }
+                removeIfIdle();
+            }
+        };
+
+        Slot(Object target) {
+            this.target = target;
+        }
+
+        /**
+         * 在主线程调用：最新的请求已经处理完时移除槽位并释放工作缓冲，
+         * 此后工作线程不会再使用本槽位的缓冲，之后的提交会创建新槽位
+         */
+        void removeIfIdle() {
+            if (finished.get() != generation.get() || done.get() != null || mSlots.get(target) != this) {
+                return;
+            }
+            mSlots.remove(target);
+            context.release();
+        }
+
+        /**
+         * 在工作线程上处理完本槽位的所有请求
+         */
+        @Override
+        public void run() {
+            while (true) {
+                Request request = pending.getAndSet(null);
+                if (request == null) {
+                    scheduled.set(false);
+                    //退出前有新请求到达且没有被别的任务接手时继续处理
+                    if (pending.get() == null || !scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                process(request);
+            }
+        }
+
+        private void process(Request request) {
+            context.clearCanceled();
+            if (request.generation != generation.get()) {
+                return;
+            }
+            BlurEngine engine = mEngine != null ? mEngine : BlurEngines.getDefault();
+            Bitmap blurred = BlurUtil.fastblur(null, request.source, request.radius, context, false, engine);
+            if (blurred != null && context.isCanceled()) {
+                //被新请求取代，由新请求负责回调和移除槽位
+                blurred.recycle();
+                return;
+            }
+            if (blurred != null) {
+                request.result = blurred;
+                Request stale = done.getAndSet(request);
+                if (stale != null) {
+                    stale.result.recycle();
+                }
+            }
+            //没有结果时也投递一次，让主线程移除槽位
+            finished.set(request.generation);
+            if (posted.compareAndSet(false, true)) {
+                mMainHandler.post(deliver);
+            }
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, "blur-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
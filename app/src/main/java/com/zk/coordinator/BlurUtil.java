@@ -1,327 +1,239 @@
 package com.zk.coordinator;
 
+import android.app.ActivityManager;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.Build;
+
+import com.zk.coordinator.blur.BlurContext;
+import com.zk.coordinator.blur.BlurEngine;
+import com.zk.coordinator.blur.BlurEngines;
+import com.zk.coordinator.blur.BufferBlur;
+import com.zk.coordinator.blur.CompactStackBlur;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.List;
 
 /**
  * Created by loongggdroid on 2016/5/12.
  */
 public class BlurUtil {
     public static Bitmap fastblur(Context context, Bitmap sentBitmap, int radius) {
-        Bitmap bitmap = sentBitmap.copy(sentBitmap.getConfig(), true);
+        return fastblur(context, sentBitmap, radius, new BlurContext(), false);
+    }
+
+    /**
+     * 使用可复用的工作缓冲进行模糊，算法为全局默认实现 {@link BlurEngines#getDefault()}
+     *
+     * @param blurContext 工作缓冲，尺寸不变时重复使用不再分配内存
+     * @param inPlace     为true且sentBitmap可变时直接在原图上模糊，跳过copy
+     */
+    public static Bitmap fastblur(Context context, Bitmap sentBitmap, int radius,
+                                  BlurContext blurContext, boolean inPlace) {
+        return fastblur(context, sentBitmap, radius, blurContext, inPlace, BlurEngines.getDefault());
+    }
+
+    /**
+     * 指定模糊算法
+     */
+    public static Bitmap fastblur(Context context, Bitmap sentBitmap, int radius,
+                                  BlurContext blurContext, boolean inPlace, BlurEngine engine) {
         if (radius < 1) {
             return (null);
         }
+        Bitmap bitmap = inPlace && sentBitmap.isMutable()
+                ? sentBitmap
+                : sentBitmap.copy(sentBitmap.getConfig(), true);
         int w = bitmap.getWidth();
         int h = bitmap.getHeight();
-        int[] pix = new int[w * h];
+        int[] pix = blurContext.obtainPixels(w, h);
         bitmap.getPixels(pix, 0, w, 0, 0, w, h);
-        int wm = w - 1;
-        int hm = h - 1;
-        int wh = w * h;
-        int div = radius + radius + 1;
-
-        int r[] = new int[wh];
-        int g[] = new int[wh];
-        int b[] = new int[wh];
-        int rsum, gsum, bsum, x, y, i, p, yp, yi, yw;
+        engine.blur(pix, w, h, radius, blurContext);
+        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+        return (bitmap);
+    }
 
-        int vmin[] = new int[Math.max(w, h)];
-        int divsum = (div + 1) >> 1;
-        divsum *= divsum;
-        int temp = 256 * divsum;
-        int dv[] = new int[temp];
-        for (i = 0; i < temp; i++) {
-            dv[i] = (i / divsum);
+    /**
+     * 带结果缓存的模糊，同一张图同一半径只计算一次；返回的Bitmap由缓存共享，不要修改或recycle
+     */
+    public static Bitmap fastblurCached(Context context, Bitmap sentBitmap, int radius) {
+        BlurResultCache cache = BlurResultCache.getInstance(context);
+        Bitmap cached = cache.get(sentBitmap, radius, 1f);
+        if (cached != null) {
+            return cached;
         }
-
-        yw = yi = 0;
-
-        int[][] stack = new int[div][3];
-
-        int stackpointer;
-
-        int stackstart;
-
-        int[] sir;
-
-        int rbs;
-
-        int r1 = radius + 1;
-
-        int routsum, goutsum, boutsum;
-
-        int rinsum, ginsum, binsum;
-
-        for (y = 0; y < h; y++) {
-
-            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
-
-            for (i = -radius; i <= radius; i++) {
-
-                p = pix[yi + Math.min(wm, Math.max(i, 0))];
-
-                sir = stack[i + radius];
-
-                sir[0] = (p & 0xff0000) >> 16;
-
-                sir[1] = (p & 0x00ff00) >> 8;
-
-                sir[2] = (p & 0x0000ff);
-
-                rbs = r1 - Math.abs(i);
-
-                rsum += sir[0] * rbs;
-
-                gsum += sir[1] * rbs;
-
-                bsum += sir[2] * rbs;
-
-                if (i > 0) {
-
-                    rinsum += sir[0];
-
-                    ginsum += sir[1];
-
-                    binsum += sir[2];
-
-                } else {
-
-                    routsum += sir[0];
-
-                    goutsum += sir[1];
-
-                    boutsum += sir[2];
-
-                }
-
-            }
-
-            stackpointer = radius;
-
-
-            for (x = 0; x < w; x++) {
-
-
-                r[yi] = dv[rsum];
-
-                g[yi] = dv[gsum];
-
-                b[yi] = dv[bsum];
-
-                rsum -= routsum;
-
-                gsum -= goutsum;
-
-                bsum -= boutsum;
-
-                stackstart = stackpointer - radius + div;
-
-                sir = stack[stackstart % div];
-
-                routsum -= sir[0];
-
-                goutsum -= sir[1];
-
-                boutsum -= sir[2];
-
-                if (y == 0) {
-
-                    vmin[x] = Math.min(x + radius + 1, wm);
-
-                }
-
-                p = pix[yw + vmin[x]];
-
-                sir[0] = (p & 0xff0000) >> 16;
-
-                sir[1] = (p & 0x00ff00) >> 8;
-
-                sir[2] = (p & 0x0000ff);
-
-                rinsum += sir[0];
-
-                ginsum += sir[1];
-
-                binsum += sir[2];
-
-                rsum += rinsum;
-
-                gsum += ginsum;
-
-                bsum += binsum;
-
-                stackpointer = (stackpointer + 1) % div;
-
-                sir = stack[(stackpointer) % div];
-
-                routsum += sir[0];
-
-                goutsum += sir[1];
-
-                boutsum += sir[2];
-
-                rinsum -= sir[0];
-
-                ginsum -= sir[1];
-
-                binsum -= sir[2];
-
-                yi++;
-
-            }
-
-            yw += w;
-
+        Bitmap blurred = fastblur(context, sentBitmap, radius);
+        if (blurred != null) {
+            cache.put(sentBitmap, radius, 1f, blurred);
         }
+        return blurred;
+    }
 
-        for (x = 0; x < w; x++) {
-
-            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
-
-            yp = -radius * w;
-
-            for (i = -radius; i <= radius; i++) {
-
-                yi = Math.max(0, yp) + x;
-
-
-                sir = stack[i + radius];
-
-
-                sir[0] = r[yi];
-
-                sir[1] = g[yi];
-
-                sir[2] = b[yi];
-
-
-                rbs = r1 - Math.abs(i);
-
-
-                rsum += r[yi] * rbs;
-
-                gsum += g[yi] * rbs;
-
-                bsum += b[yi] * rbs;
-
-
-                if (i > 0) {
-
-                    rinsum += sir[0];
-
-                    ginsum += sir[1];
-
-                    binsum += sir[2];
-
-                } else {
-
-                    routsum += sir[0];
-
-                    goutsum += sir[1];
-
-                    boutsum += sir[2];
-
-                }
-
-
-                if (i < hm) {
-
-                    yp += w;
-
-                }
-
-            }
-
-            yi = x;
-
-            stackpointer = radius;
-
-            for (y = 0; y < h; y++) {
-
-                pix[yi] = (0xff000000 & pix[yi]) | (dv[rsum] << 16)
-
-                        | (dv[gsum] << 8) | dv[bsum];
-
-
-                rsum -= routsum;
-
-                gsum -= goutsum;
-
-                bsum -= boutsum;
-
-
-                stackstart = stackpointer - radius + div;
-
-                sir = stack[stackstart % div];
-
-
-                routsum -= sir[0];
-
-                goutsum -= sir[1];
-
-                boutsum -= sir[2];
-
-
-                if (x == 0) {
-
-                    vmin[y] = Math.min(y + r1, hm) * w;
-
-                }
-
-                p = x + vmin[y];
-
-
-                sir[0] = r[p];
-
-                sir[1] = g[p];
-
-                sir[2] = b[p];
-
-
-                rinsum += sir[0];
-
-                ginsum += sir[1];
-
-                binsum += sir[2];
-
-
-                rsum += rinsum;
-
-                gsum += ginsum;
-
-                bsum += binsum;
-
-
-                stackpointer = (stackpointer + 1) % div;
-
-                sir = stack[stackpointer];
-
-
-                routsum += sir[0];
-
-                goutsum += sir[1];
-
-                boutsum += sir[2];
-
-
-                rinsum -= sir[0];
-
-                ginsum -= sir[1];
-
-                binsum -= sir[2];
+    /**
+     * 多核并行模糊，结果与fastblur一致，适合较大的头部图片
+     */
+    public static Bitmap fastblurParallel(Context context, Bitmap sentBitmap, int radius,
+                                          BlurContext blurContext, boolean inPlace) {
+        return fastblur(context, sentBitmap, radius, blurContext, inPlace, BlurEngines.parallel());
+    }
 
+    /**
+     * 经 copyPixelsToBuffer / copyPixelsFromBuffer 直接搬运原始像素后模糊，没有颜色转换；
+     * 原始像素是预乘 alpha 的，半透明区域的结果与 {@link #fastblur} 略有不同
+     * <p>
+     * 仅支持行跨度等于 w*4 的 ARGB_8888，其他格式退回 {@link #fastblur}
+     */
+    public static Bitmap fastblurRaw(Context context, Bitmap sentBitmap, int radius,
+                                     BlurContext blurContext, boolean inPlace, BlurEngine engine) {
+        if (radius < 1) {
+            return (null);
+        }
+        int w = sentBitmap.getWidth();
+        int h = sentBitmap.getHeight();
+        if (sentBitmap.getConfig() != Bitmap.Config.ARGB_8888 || sentBitmap.getRowBytes() != w * 4) {
+            return fastblur(context, sentBitmap, radius, blurContext, inPlace, engine);
+        }
+        Bitmap bitmap = inPlace && sentBitmap.isMutable()
+                ? sentBitmap
+                : sentBitmap.copy(sentBitmap.getConfig(), true);
+        IntBuffer buffer = IntBuffer.wrap(blurContext.obtainPixels(w, h), 0, w * h);
+        bitmap.copyPixelsToBuffer(buffer);
+        buffer.rewind();
+        BufferBlur.blur(buffer, 0, w, w, h, radius, blurContext, engine);
+        bitmap.copyPixelsFromBuffer(buffer);
+        return (bitmap);
+    }
 
-                yi += w;
+    /**
+     * 以 RGB_565 模糊，拷贝、工作缓冲和结果Bitmap都是每像素 2 字节，约为 {@link #fastblur} 的一半；
+     * 原图的 alpha 被丢弃，适合不透明的背景图，各通道与 ARGB 结果相差至多一个量化级
+     *
+     * @param inPlace 为true且sentBitmap是可变的RGB_565时直接在原图上模糊
+     */
+    public static Bitmap fastblur565(Context context, Bitmap sentBitmap, int radius,
+                                     BlurContext blurContext, boolean inPlace) {
+        if (radius < 1) {
+            return (null);
+        }
+        Bitmap bitmap = inPlace && sentBitmap.isMutable() && sentBitmap.getConfig() == Bitmap.Config.RGB_565
+                ? sentBitmap
+                : sentBitmap.copy(Bitmap.Config.RGB_565, true);
+        if (bitmap == null) {
+            return (null);
+        }
+        int w = bitmap.getWidth();
+        int h = bitmap.getHeight();
+        //行尾可能有对齐填充，按实际行跨度读写
+        int stride = bitmap.getRowBytes() / 2;
+        ShortBuffer buffer = ShortBuffer.wrap(blurContext.obtainShorts(stride * h), 0, stride * h);
+        bitmap.copyPixelsToBuffer(buffer);
+        buffer.rewind();
+        CompactStackBlur.blur565(buffer.array(), 0, stride, w, h, radius, blurContext);
+        bitmap.copyPixelsFromBuffer(buffer);
+        return (bitmap);
+    }
 
+    /**
+     * 只模糊原图的亮度，结果是每像素 1 字节的 ALPHA_8 蒙版，约为 {@link #fastblur} 的四分之一；
+     * 绘制时Paint的颜色就是着色，如 paint.setColor(0xff3f51b5) 后 drawBitmap 得到单色的模糊背景
+     * <p>
+     * 原图的 alpha 不参与计算，亮度按 BT.601 系数
+     */
+    public static Bitmap fastblurLuma(Context context, Bitmap sentBitmap, int radius, BlurContext blurContext) {
+        if (radius < 1) {
+            return (null);
+        }
+        int w = sentBitmap.getWidth();
+        int h = sentBitmap.getHeight();
+        Bitmap mask = Bitmap.createBitmap(w, h, Bitmap.Config.ALPHA_8);
+        int stride = mask.getRowBytes();
+        byte[] luma = blurContext.obtainBytes(stride * h);
+        //逐行读取原图，不分配整幅的 int 像素缓冲
+        int[] line = new int[w];
+        for (int y = 0; y < h; y++) {
+            sentBitmap.getPixels(line, 0, w, 0, y, w, 1);
+            for (int x = 0, i = y * stride; x < w; x++, i++) {
+                luma[i] = (byte) CompactStackBlur.luma(line[x]);
             }
+        }
+        CompactStackBlur.blurLuma(luma, 0, stride, w, h, radius, blurContext);
+        mask.copyPixelsFromBuffer(ByteBuffer.wrap(luma, 0, stride * h));
+        return mask;
+    }
 
+    /**
+     * 低内存设备上对不透明的原图使用 {@link #fastblur565}，其余情况同 {@link #fastblur}
+     */
+    public static Bitmap fastblurCompact(Context context, Bitmap sentBitmap, int radius,
+                                         BlurContext blurContext, boolean inPlace) {
+        if (!sentBitmap.hasAlpha() && isLowRamDevice(context)) {
+            return fastblur565(context, sentBitmap, radius, blurContext, inPlace);
         }
+        return fastblur(context, sentBitmap, radius, blurContext, inPlace);
+    }
 
+    /**
+     * API 19 起由系统判断，之前的版本按单个应用的内存上限不超过 64MB 判断
+     */
+    public static boolean isLowRamDevice(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return am.isLowRamDevice();
+        }
+        return am.getMemoryClass() <= 64;
+    }
 
-        bitmap.setPixels(pix, 0, w, 0, 0, w, h);
+    /**
+     * 只模糊可变Bitmap中的rect区域，四周只多读radius个像素，区域外的像素不变；
+     * 默认的Stack Blur下区域内结果与整图模糊一致
+     */
+    public static void fastblurRegion(Bitmap bitmap, Rect rect, int radius,
+                                      BlurContext blurContext, BlurEngine engine) {
+        blurRegion(bitmap, bitmap, rect.left, rect.top, rect.right, rect.bottom, radius, blurContext, engine);
+    }
 
-        return (bitmap);
+    /**
+     * 源图局部变化后更新之前的模糊结果，只重新计算每个脏矩形向外扩展radius后的区域
+     *
+     * @param blurred 之前由source模糊得到的可变Bitmap，尺寸与source一致
+     */
+    public static void fastblurDirty(Bitmap source, Bitmap blurred, List<Rect> dirtyRects, int radius,
+                                     BlurContext blurContext, BlurEngine engine) {
+        for (int i = 0, n = dirtyRects.size(); i < n; i++) {
+            Rect dirty = dirtyRects.get(i);
+            blurRegion(source, blurred, dirty.left - radius, dirty.top - radius,
+                    dirty.right + radius, dirty.bottom + radius, radius, blurContext, engine);
+        }
+    }
 
+    /**
+     * 读取 src 中带radius边距的区域，模糊后把区域本身写入 dst，与 RegionBlur 的做法一致
+     */
+    private static void blurRegion(Bitmap src, Bitmap dst, int left, int top, int right, int bottom,
+                                   int radius, BlurContext blurContext, BlurEngine engine) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(w, right);
+        bottom = Math.min(h, bottom);
+        if (radius < 1 || left >= right || top >= bottom) {
+            return;
+        }
+        int padLeft = Math.max(0, left - radius);
+        int padTop = Math.max(0, top - radius);
+        int padWidth = Math.min(w, right + radius) - padLeft;
+        int padHeight = Math.min(h, bottom + radius) - padTop;
+        int[] pix = blurContext.obtainPixels(padWidth, padHeight);
+        src.getPixels(pix, 0, padWidth, padLeft, padTop, padWidth, padHeight);
+        engine.blur(pix, padWidth, padHeight, radius, blurContext);
+        if (blurContext.isCanceled()) {
+            return;
+        }
+        int offset = (top - padTop) * padWidth + left - padLeft;
+        dst.setPixels(pix, offset, padWidth, left, top, right - left, bottom - top);
     }
 }
@@ -0,0 +1,92 @@
+package com.zk.coordinator;
+
+import android.graphics.Bitmap;
+
+import com.zk.coordinator.blur.BlurGovernor;
+
+/**
+ * 限时模糊：由 {@link BlurGovernor} 按时间预算选择缩放比例和算法，
+ * 每个级别持有一条 {@link BlurPipeline}，实测耗时回馈给调节器
+ * <p>
+ * 返回的Bitmap与原图同尺寸，由管线持有并复用，调用方不要recycle；非线程安全
+ * <p>
+ * 切换级别（包括调节器的试探）时不释放其他级别的复用图，切回时不必重新分配；
+ * 内存紧张时调用 {@link #trimMemory()}，不再使用时调用 {@link #release()}
+ */
+public class BudgetedBlur {
+
+    //一帧的默认预算，留出绘制时间
+    public static final long DEFAULT_BUDGET_NANOS = 8000000L;
+
+    private final BlurGovernor mGovernor;
+    private final BlurPipeline[] mPipelines;
+    //最近一次使用的级别
+    private int mLastLevel = -1;
+
+    public BudgetedBlur() {
+        this(new BlurGovernor());
+    }
+
+    public BudgetedBlur(BlurGovernor governor) {
+        mGovernor = governor;
+        mPipelines = new BlurPipeline[governor.getLevelCount()];
+        for (int i = 0; i < mPipelines.length; i++) {
+            BlurGovernor.Level level = governor.getLevel(i);
+            mPipelines[i] = new BlurPipeline(level.scale, true);
+            mPipelines[i].setEngine(level.engine);
+        }
+    }
+
+    public Bitmap blur(Bitmap source, int radius) {
+        return blur(source, radius, DEFAULT_BUDGET_NANOS);
+    }
+
+    /**
+     * 在预算内模糊source，radius按原图尺寸计算，radius小于1时直接返回source
+     */
+    public Bitmap blur(Bitmap source, int radius, long budgetNanos) {
+        if (radius < 1) {
+            return source;
+        }
+        int w = source.getWidth();
+        int h = source.getHeight();
+        int level = mGovernor.choose(w, h, radius, budgetNanos);
+        long start = System.nanoTime();
+        Bitmap result = mPipelines[level].blur(source, radius);
+        mGovernor.record(level, w, h, radius, System.nanoTime() - start, budgetNanos);
+        mLastLevel = level;
+        return result;
+    }
+
+    /**
+     * 最近一次使用的质量级别，0 为最高质量
+     */
+    public int getLastLevel() {
+        return mLastLevel;
+    }
+
+    public BlurGovernor getGovernor() {
+        return mGovernor;
+    }
+
+    /**
+     * 释放除最近一次使用的级别以外的复用图，如在 onTrimMemory 中调用
+     */
+    public void trimMemory() {
+        for (int i = 0; i < mPipelines.length; i++) {
+            if (i != mLastLevel) {
+                mPipelines[i].release();
+            }
+        }
+    }
+
+    /**
+     * 释放所有级别的复用图
+     */
+    public void release() {
+        for (BlurPipeline pipeline : mPipelines) {
+            pipeline.release();
+        }
+        mLastLevel = -1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.zk.coordinator;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.Transformation;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapResource;
+
+import jp.wasabeef.glide.transformations.BlurTransformation;
+
+/**
+ * 带 {@link BlurDiskCache} 的Glide模糊变换：命中时直接读回模糊结果，未命中时交给
+ * {@link BlurTransformation} 计算并写入缓存
+ * <p>
+ * 变换本身拿不到原图的标识，需要调用方传入稳定的 sourceKey（如资源id、url）
+ */
+public class DiskCachedBlurTransformation implements Transformation<Bitmap> {
+
+    private final BlurTransformation mBlur;
+    private final BlurDiskCache mDiskCache;
+    private final BitmapPool mBitmapPool;
+    private final String mSourceKey;
+    private final int mRadius;
+    private final int mSampling;
+
+    public DiskCachedBlurTransformation(Context context, String sourceKey, int radius, int sampling) {
+        mBlur = new BlurTransformation(context, radius, sampling);
+        mDiskCache = BlurDiskCache.getInstance(context);
+        mBitmapPool = Glide.get(context).getBitmapPool();
+        mSourceKey = sourceKey;
+        mRadius = radius;
+        mSampling = sampling;
+    }
+
+    @Override
+    public Resource<Bitmap> transform(Resource<Bitmap> resource, int outWidth, int outHeight) {
+        String key = BlurDiskCache.key("glide:" + mSampling, mSourceKey, outWidth, outHeight, mRadius);
+        Bitmap cached = mDiskCache.get(key);
+        if (cached != null) {
+            return BitmapResource.obtain(cached, mBitmapPool);
+        }
+        Resource<Bitmap> blurred = mBlur.transform(resource, outWidth, outHeight);
+        mDiskCache.put(key, blurred.get());
+        return blurred;
+    }
+
+    @Override
+    public String getId() {
+        return "DiskCachedBlurTransformation(" + mSourceKey + ", " + mBlur.getId() + ")";
+    }
+}
@@ -1,6 +1,11 @@
 package com.zk.coordinator;
 
 import android.annotation.TargetApi;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.support.design.widget.AppBarLayout;
 import android.support.design.widget.AppBarLayoutSpringBehavior;
@@ -36,6 +41,7 @@ public class MainActivity extends AppCompatActivity {
     private ImageView head_img_bg;
     private CollapsingToolbarLayout mCollapsingToolbarLayout;
     private CoordinatorLayout root_layout;
+    private BlurLevelDrawable mHeadBlurDrawable;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -57,6 +63,12 @@ public class MainActivity extends AppCompatActivity {
         //使用CollapsingToolbarLayout必须把title设置到CollapsingToolbarLayout上，设置到Toolbar上则不会显示
         mCollapsingToolbarLayout = (CollapsingToolbarLayout) findViewById(R.id
                 .collapsing_toolbar_layout);
+        //Toolbar背后的背景模糊，只在头部相对Toolbar移动时增量更新
+        final BackdropBlurView toolbarBackdrop = (BackdropBlurView) findViewById(R.id.toolbar_backdrop);
+        toolbarBackdrop.setSource(head_layout);
+        toolbarBackdrop.setOverlayColor(0x33ffffff);
+        //折叠后CollapsingToolbarLayout的contentScrim画在背景模糊之上，不透明时完全挡住模糊结果
+        final boolean scrimCoversBackdrop = isOpaque(mCollapsingToolbarLayout.getContentScrim());
         app_bar_layout.addOnOffsetChangedListener(new AppBarLayout.OnOffsetChangedListener() {
             @Override
             public void onOffsetChanged(AppBarLayout appBarLayout, int verticalOffset) {
@@ -65,6 +77,9 @@ public class MainActivity extends AppCompatActivity {
                 } else {
                     mCollapsingToolbarLayout.setTitle(" ");
                 }
+                //离折叠不到两个Toolbar高度、且没有被不透明的遮罩挡住时才打开背景模糊，展开时不截图
+                toolbarBackdrop.setBlurEnabled(!scrimCoversBackdrop
+                        && appBarLayout.getTotalScrollRange() + verticalOffset <= toolbarBackdrop.getHeight() * 2);
             }
         });
         toolbar_tab = (TabLayout) findViewById(R.id.toolbar_tab);
@@ -81,14 +96,26 @@ public class MainActivity extends AppCompatActivity {
 
 //        final RealtimeBlurView realtimeBlurView = findViewById(R.id.real_time_blur_view);
 
+        mHeadBlurDrawable = new BlurLevelDrawable(
+                BitmapFactory.decodeResource(getResources(), R.mipmap.banner_bg),
+                BlurLevelDrawable.DEFAULT_RADII, 0.25f,
+                BlurDiskCache.getInstance(this), "res:" + R.mipmap.banner_bg);
+        head_img_bg.setImageDrawable(mHeadBlurDrawable);
+        mHeadBlurDrawable.setBlurRadius(20);
+
         AppBarLayoutSpringBehavior springBehavior = (AppBarLayoutSpringBehavior) ((CoordinatorLayout.LayoutParams) app_bar_layout.getLayoutParams()).getBehavior();
-        springBehavior.setSpringOffsetCallback(new AppBarLayoutSpringBehavior.SpringOffsetCallback() {
+        //下拉时只放大头部背景图，不重新布局
+        springBehavior.setStretchMode(AppBarLayoutSpringBehavior.STRETCH_MODE_TRANSFORM);
+        springBehavior.setStretchTargetId(R.id.head_img_bg);
+        //模糊半径每帧只更新一次
+        springBehavior.addSpringOffsetCallback(new AppBarLayoutSpringBehavior.SpringOffsetCallback() {
             @Override
             public void springCallback(int offset) {
                 int radius = 20 * (240 - offset > 0 ? 240 - offset : 0) / 240;
                 //realtimeBlurView.setBlurRadius(radius);
+                mHeadBlurDrawable.setBlurRadius(radius);
             }
-        });
+        }, true);
 
 //        loadBlurAndSetStatusBar();
 
@@ -97,6 +124,12 @@ public class MainActivity extends AppCompatActivity {
 //                90, 0)).into(head_iv);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mHeadBlurDrawable.release();
+    }
+
     /**
      * 设置毛玻璃效果和沉浸状态栏
      */
@@ -131,4 +164,17 @@ public class MainActivity extends AppCompatActivity {
         }
         return super.onOptionsItemSelected(item);
     }
+
+    /**
+     * 遮罩完全显示时是否不透明；CollapsingToolbarLayout绘制时会改变遮罩的alpha，应在绘制前读取
+     */
+    private static boolean isOpaque(Drawable scrim) {
+        if (scrim == null) {
+            return false;
+        }
+        if (scrim instanceof ColorDrawable) {
+            return Color.alpha(((ColorDrawable) scrim).getColor()) == 0xff;
+        }
+        return scrim.getOpacity() == PixelFormat.OPAQUE;
+    }
 }
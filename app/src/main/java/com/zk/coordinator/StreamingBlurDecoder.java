@@ -0,0 +1,130 @@
+package com.zk.coordinator;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Build;
+
+import com.zk.coordinator.blur.StreamingStackBlur;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 大图流式模糊：用 {@link BitmapRegionDecoder} 按横向条带降采样解码，
+ * 交给 {@link StreamingStackBlur} 逐行模糊后直接写入降采样尺寸的结果图
+ * <p>
+ * 不解码整张原图，峰值内存由条带高度和模糊半径决定，与原图尺寸无关
+ */
+public class StreamingBlurDecoder {
+
+    //每个条带解码后的行数
+    private static final int STRIP_ROWS = 64;
+
+    private StreamingBlurDecoder() {
+    }
+
+    public static Bitmap decode(Resources res, int resId, int targetWidth, int radius) throws IOException {
+        InputStream in = res.openRawResource(resId);
+        try {
+            return decode(in, targetWidth, radius);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 解码并模糊，结果宽度不小于 targetWidth 且尽量接近
+     *
+     * @param radius 按原图尺寸计算的半径，会按降采样比例缩小
+     */
+    public static Bitmap decode(InputStream in, int targetWidth, int radius) throws IOException {
+        BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(in, false);
+        try {
+            return decode(decoder, targetWidth, radius);
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    private static Bitmap decode(BitmapRegionDecoder decoder, int targetWidth, int radius) {
+        int srcWidth = decoder.getWidth();
+        int srcHeight = decoder.getHeight();
+        int sample = 1;
+        while (srcWidth / (sample * 2) >= targetWidth) {
+            sample *= 2;
+        }
+        int stripHeight = STRIP_ROWS * sample;
+        int outHeight = (srcHeight + sample - 1) / sample;
+        int scaledRadius = Math.max(1, Math.round(radius / (float) sample));
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sample;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Rect region = new Rect();
+        Bitmap strip = null;
+        int[] pixels = null;
+        OutputSink sink = null;
+        StreamingStackBlur blur = null;
+
+        for (int top = 0; top < srcHeight; top += stripHeight) {
+            int bottom = Math.min(top + stripHeight, srcHeight);
+            region.set(0, top, srcWidth, bottom);
+            //完整条带尺寸相同，4.1起可以解码到上一条带的Bitmap里
+            boolean reuse = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                    && strip != null && bottom - top == stripHeight;
+            options.inBitmap = reuse ? strip : null;
+            Bitmap decoded = decoder.decodeRegion(region, options);
+            if (strip != null && decoded != strip) {
+                strip.recycle();
+            }
+            strip = decoded;
+            int w = strip.getWidth();
+            int h = strip.getHeight();
+            if (blur == null) {
+                sink = new OutputSink(Bitmap.createBitmap(w, outHeight, Bitmap.Config.ARGB_8888));
+                blur = new StreamingStackBlur(w, scaledRadius, sink);
+                pixels = new int[w * h];
+            } else if (pixels.length < w * h) {
+                pixels = new int[w * h];
+            }
+            strip.getPixels(pixels, 0, w, 0, 0, w, h);
+            blur.push(pixels, 0, w, h);
+        }
+        if (strip != null) {
+            strip.recycle();
+        }
+        if (blur == null) {
+            return null;
+        }
+        blur.finish();
+        Bitmap output = sink.output;
+        int rows = blur.getEmittedRows();
+        //解码器的取整方式与估算不同时裁掉多余的行
+        if (rows < output.getHeight()) {
+            Bitmap cropped = Bitmap.createBitmap(output, 0, 0, output.getWidth(), rows);
+            if (cropped != output) {
+                output.recycle();
+            }
+            return cropped;
+        }
+        return output;
+    }
+
+    private static class OutputSink implements StreamingStackBlur.RowSink {
+        final Bitmap output;
+
+        OutputSink(Bitmap output) {
+            this.output = output;
+        }
+
+        @Override
+        public void onRow(int y, int[] row, int w) {
+            if (y < output.getHeight()) {
+                output.setPixels(row, 0, w, 0, y, w, 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.zk.coordinator.blur;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * 各模糊实现的对照报告：对每张图、每个半径和缩放比例，以原始 Stack Blur 的原尺寸结果为基准，
+ * 统计最大误差、PSNR、耗时和所有线程上的分配量（含 ParallelStackBlur 的工作线程）
+ * <p>
+ * ./gradlew :blur-core:blurReport [-Pcorpus=图片目录] [-Preport=输出文件]
+ * <p>
+ * 没有指定图片目录时使用合成图；缩放比例小于 1 时先按整数倍平均缩小，用缩小后的半径模糊，
+ * 再双线性放大回原尺寸比较。耗时分两列：只含模糊本身，以及含缩小和放大的整条管线
+ * <p>
+ * 每项先预热至少 {@link #WARMUP_RUNS} 次且不少于 {@link #WARMUP_NANOS}，让 C2 编译完各实现的内核；
+ * 需要更严格的数字时用同一模块的 JMH 基准
+ */
+public class BlurReport {
+
+    private static final int[] RADII = {2, 5, 10, 20, 40};
+    private static final int[] DOWNSAMPLES = {1, 2, 4};
+    private static final int WARMUP_RUNS = 20;
+    private static final long WARMUP_NANOS = 300000000L;
+    private static final int MEASURE_RUNS = 7;
+
+    private final Map<String, BlurEngine> mEngines = new LinkedHashMap<>();
+    private final List<Row> mRows = new ArrayList<>();
+    private final ThreadMXBean mThreads = ManagementFactory.getThreadMXBean();
+    //HotSpot 才能统计线程分配量
+    private final boolean mAllocationSupported;
+
+    public static void main(String[] args) throws IOException {
+        File corpus = null;
+        File report = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--corpus".equals(args[i])) {
+                corpus = new File(args[i + 1]);
+            } else if ("--out".equals(args[i])) {
+                report = new File(args[i + 1]);
+            }
+        }
+        BlurReport blurReport = new BlurReport();
+        Map<String, Image> images = corpus != null ? loadCorpus(corpus) : syntheticImages();
+        if (images.isEmpty()) {
+            System.err.println("no images in " + corpus);
+            return;
+        }
+        try {
+            for (Map.Entry<String, Image> entry : images.entrySet()) {
+                blurReport.run(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            blurReport.shutdown();
+        }
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, "UTF-8"), true);
+        blurReport.print(out);
+        out.flush();
+        if (report != null) {
+            File parent = report.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            PrintWriter file = new PrintWriter(new OutputStreamWriter(new FileOutputStream(report), "UTF-8"));
+            try {
+                blurReport.print(file);
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    BlurReport() {
+        mEngines.put("stack", BlurEngines.STACK);
+        mEngines.put("parallel", new ParallelStackBlur());
+        mEngines.put("box", BlurEngines.BOX);
+        mEngines.put("gaussian", BlurEngines.GAUSSIAN);
+        mEngines.put("summedArea", BlurEngines.SUMMED_AREA);
+        mAllocationSupported = mThreads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) mThreads).isThreadAllocatedMemorySupported();
+        if (mAllocationSupported) {
+            ((com.sun.management.ThreadMXBean) mThreads).setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    void run(String name, Image image) {
+        for (int radius : RADII) {
+            int[] golden = image.pixels.clone();
+            ReferenceStackBlur.blur(golden, image.width, image.height, radius);
+            measure(name, image, radius, 1, "reference", null, golden);
+            for (int downsample : DOWNSAMPLES) {
+                for (Map.Entry<String, BlurEngine> engine : mEngines.entrySet()) {
+                    measure(name, image, radius, downsample, engine.getKey(), engine.getValue(), golden);
+                }
+            }
+        }
+    }
+
+    private void measure(String name, Image image, int radius, int downsample, String engineName,
+                         BlurEngine engine, int[] golden) {
+        int w = image.width;
+        int h = image.height;
+        int sw = Math.max(1, w / downsample);
+        int sh = Math.max(1, h / downsample);
+        int scaledRadius = Math.max(1, Math.round(radius / (float) downsample));
+        BlurContext context = new BlurContext();
+        int[] work = new int[w * h];
+        int[] small = new int[sw * sh];
+        long[] blurTimes = new long[MEASURE_RUNS];
+        long[] totalTimes = new long[MEASURE_RUNS];
+        long allocated = 0;
+
+        long warmupStart = System.nanoTime();
+        int warmup = 0;
+        while (warmup < WARMUP_RUNS || System.nanoTime() - warmupStart < WARMUP_NANOS) {
+            System.arraycopy(image.pixels, 0, work, 0, work.length);
+            blurOnce(work, w, h, small, sw, sh, downsample, radius, scaledRadius, engine, context, null);
+            warmup++;
+        }
+        long[] blurNanos = new long[1];
+        for (int run = 0; run < MEASURE_RUNS; run++) {
+            System.arraycopy(image.pixels, 0, work, 0, work.length);
+            long[] threadIds = mAllocationSupported ? mThreads.getAllThreadIds() : null;
+            long bytesBefore = allocatedBytes(threadIds);
+            long start = System.nanoTime();
+            blurOnce(work, w, h, small, sw, sh, downsample, radius, scaledRadius, engine, context, blurNanos);
+            totalTimes[run] = System.nanoTime() - start;
+            blurTimes[run] = blurNanos[0];
+            allocated += allocatedBytes(threadIds) - bytesBefore;
+        }
+        Arrays.sort(blurTimes);
+        Arrays.sort(totalTimes);
+
+        Row row = new Row();
+        row.image = name;
+        row.size = w + "x" + h;
+        row.radius = radius;
+        row.downsample = downsample;
+        row.engine = engineName;
+        row.millis = blurTimes[MEASURE_RUNS / 2] / 1e6;
+        row.totalMillis = totalTimes[MEASURE_RUNS / 2] / 1e6;
+        row.allocatedBytes = mAllocationSupported ? allocated / MEASURE_RUNS : -1;
+        compare(golden, work, row);
+        mRows.add(row);
+    }
+
+    /**
+     * 跑一次管线，blurNanos 不为null时写入只含模糊本身的耗时
+     */
+    private static void blurOnce(int[] work, int w, int h, int[] small, int sw, int sh, int downsample,
+                                 int radius, int scaledRadius, BlurEngine engine, BlurContext context,
+                                 long[] blurNanos) {
+        long start;
+        long end;
+        if (engine == null) {
+            start = System.nanoTime();
+            ReferenceStackBlur.blur(work, w, h, radius);
+            end = System.nanoTime();
+        } else if (downsample == 1) {
+            start = System.nanoTime();
+            engine.blur(work, w, h, radius, context);
+            end = System.nanoTime();
+        } else {
+            downscale(work, w, h, small, sw, sh, downsample);
+            start = System.nanoTime();
+            engine.blur(small, sw, sh, scaledRadius, context);
+            end = System.nanoTime();
+            upscale(small, sw, sh, work, w, h);
+        }
+        if (blurNanos != null) {
+            blurNanos[0] = end - start;
+        }
+    }
+
+    /**
+     * threadIds 中各线程的累计分配量之和，已结束的线程不计
+     */
+    private long allocatedBytes(long[] threadIds) {
+        if (!mAllocationSupported) {
+            return 0;
+        }
+        long[] bytes = ((com.sun.management.ThreadMXBean) mThreads).getThreadAllocatedBytes(threadIds);
+        long sum = 0;
+        for (long b : bytes) {
+            if (b > 0) {
+                sum += b;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 逐通道比较 RGB 和 alpha，PSNR 只按 RGB 计算
+     */
+    private static void compare(int[] golden, int[] actual, Row row) {
+        long squared = 0;
+        int maxError = 0;
+        for (int i = 0; i < golden.length; i++) {
+            int g = golden[i];
+            int a = actual[i];
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int diff = ((g >> shift) & 0xff) - ((a >> shift) & 0xff);
+                squared += diff * diff;
+                maxError = Math.max(maxError, Math.abs(diff));
+            }
+            maxError = Math.max(maxError, Math.abs((g >>> 24) - (a >>> 24)));
+        }
+        double mse = squared / (golden.length * 3.0);
+        row.maxError = maxError;
+        row.psnr = mse == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(255.0 * 255.0 / mse);
+    }
+
+    /**
+     * 按 factor x factor 块平均缩小，不足一块的边缘并入最后一块
+     */
+    private static void downscale(int[] src, int w, int h, int[] dst, int sw, int sh, int factor) {
+        for (int y = 0; y < sh; y++) {
+            int y0 = y * factor;
+            int y1 = y == sh - 1 ? h : y0 + factor;
+            for (int x = 0; x < sw; x++) {
+                int x0 = x * factor;
+                int x1 = x == sw - 1 ? w : x0 + factor;
+                int a = 0, r = 0, g = 0, b = 0;
+                for (int yy = y0; yy < y1; yy++) {
+                    for (int xx = x0; xx < x1; xx++) {
+                        int p = src[yy * w + xx];
+                        a += p >>> 24;
+                        r += (p >> 16) & 0xff;
+                        g += (p >> 8) & 0xff;
+                        b += p & 0xff;
+                    }
+                }
+                int n = (y1 - y0) * (x1 - x0);
+                dst[y * sw + x] = ((a + n / 2) / n) << 24 | ((r + n / 2) / n) << 16
+                        | ((g + n / 2) / n) << 8 | (b + n / 2) / n;
+            }
+        }
+    }
+
+    /**
+     * 双线性放大，像素中心对齐
+     */
+    private static void upscale(int[] src, int sw, int sh, int[] dst, int w, int h) {
+        float sx = sw / (float) w;
+        float sy = sh / (float) h;
+        for (int y = 0; y < h; y++) {
+            float fy = Math.max(0, (y + 0.5f) * sy - 0.5f);
+            int y0 = Math.min((int) fy, sh - 1);
+            int y1 = Math.min(y0 + 1, sh - 1);
+            float ty = fy - y0;
+            for (int x = 0; x < w; x++) {
+                float fx = Math.max(0, (x + 0.5f) * sx - 0.5f);
+                int x0 = Math.min((int) fx, sw - 1);
+                int x1 = Math.min(x0 + 1, sw - 1);
+                float tx = fx - x0;
+                int p00 = src[y0 * sw + x0];
+                int p01 = src[y0 * sw + x1];
+                int p10 = src[y1 * sw + x0];
+                int p11 = src[y1 * sw + x1];
+                int out = 0;
+                for (int shift = 0; shift <= 24; shift += 8) {
+                    float top = ((p00 >>> shift) & 0xff) * (1 - tx) + ((p01 >>> shift) & 0xff) * tx;
+                    float bottom = ((p10 >>> shift) & 0xff) * (1 - tx) + ((p11 >>> shift) & 0xff) * tx;
+                    out |= Math.round(top * (1 - ty) + bottom * ty) << shift;
+                }
+                dst[y * w + x] = out;
+            }
+        }
+    }
+
+    void print(PrintWriter out) {
+        //blur ms 只含模糊本身，total ms 含缩小和放大；alloc 为所有线程的分配量
+        out.println("image        size       radius  scale  engine     blur ms  total ms  alloc(KB)  maxErr  PSNR(dB)");
+        for (Row row : mRows) {
+            out.println(String.format(Locale.US, "%-12s %-10s %6d  1/%-3d  %-10s %8.2f  %8.2f  %9s  %6d  %8s",
+                    row.image, row.size, row.radius, row.downsample, row.engine, row.millis, row.totalMillis,
+                    row.allocatedBytes < 0 ? "n/a" : String.valueOf(row.allocatedBytes / 1024),
+                    row.maxError, formatPsnr(row.psnr)));
+        }
+
+        //按实现和缩放比例汇总所有图片和半径
+        out.println();
+        out.println("engine      scale  blur ms   total ms  mean PSNR  min PSNR  worst maxErr");
+        Map<String, List<Row>> groups = new LinkedHashMap<>();
+        for (Row row : mRows) {
+            String key = row.engine + "@" + row.downsample;
+            List<Row> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(row);
+        }
+        for (List<Row> group : groups.values()) {
+            double millis = 0;
+            double totalMillis = 0;
+            double psnr = 0;
+            double minPsnr = Double.POSITIVE_INFINITY;
+            int worst = 0;
+            int finite = 0;
+            for (Row row : group) {
+                millis += row.millis;
+                totalMillis += row.totalMillis;
+                if (!Double.isInfinite(row.psnr)) {
+                    psnr += row.psnr;
+                    finite++;
+                }
+                minPsnr = Math.min(minPsnr, row.psnr);
+                worst = Math.max(worst, row.maxError);
+            }
+            Row first = group.get(0);
+            out.println(String.format(Locale.US, "%-10s  1/%-3d  %8.2f  %8.2f  %9s  %8s  %12d",
+                    first.engine, first.downsample, millis / group.size(), totalMillis / group.size(),
+                    finite == 0 ? "inf" : formatPsnr(psnr / finite), formatPsnr(minPsnr), worst));
+        }
+    }
+
+    private static String formatPsnr(double psnr) {
+        return Double.isInfinite(psnr) ? "inf" : String.format(Locale.US, "%.2f", psnr);
+    }
+
+    void shutdown() {
+        for (BlurEngine engine : mEngines.values()) {
+            if (engine instanceof ParallelStackBlur) {
+                ((ParallelStackBlur) engine).shutdown();
+            }
+        }
+    }
+
+    private static Map<String, Image> loadCorpus(File directory) throws IOException {
+        Map<String, Image> images = new LinkedHashMap<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return images;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            BufferedImage buffered = file.isFile() ? ImageIO.read(file) : null;
+            if (buffered == null) {
+                continue;
+            }
+            Image image = new Image(buffered.getWidth(), buffered.getHeight());
+            buffered.getRGB(0, 0, image.width, image.height, image.pixels, 0, image.width);
+            images.put(file.getName(), image);
+        }
+        return images;
+    }
+
+    /**
+     * 噪声、渐变、棋盘格、随机色块和半透明渐变，覆盖高频、低频、锐利边缘和 alpha
+     */
+    private static Map<String, Image> syntheticImages() {
+        int w = 640;
+        int h = 360;
+        Random random = new Random(42);
+        Map<String, Image> images = new LinkedHashMap<>();
+
+        Image noise = new Image(w, h);
+        for (int i = 0; i < noise.pixels.length; i++) {
+            noise.pixels[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        images.put("noise", noise);
+
+        Image gradient = new Image(w, h);
+        Image checker = new Image(w, h);
+        Image alpha = new Image(w, h);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = y * w + x;
+                gradient.pixels[i] = 0xff000000 | (x * 255 / w) << 16 | (y * 255 / h) << 8 | 128;
+                checker.pixels[i] = ((x >> 3) + (y >> 3)) % 2 == 0 ? 0xffffffff : 0xff000000;
+                alpha.pixels[i] = (x * 255 / w) << 24 | 0x3366cc;
+            }
+        }
+        images.put("gradient", gradient);
+        images.put("checker", checker);
+
+        Image blocks = new Image(w, h);
+        Arrays.fill(blocks.pixels, 0xff808080);
+        for (int n = 0; n < 40; n++) {
+            int color = 0xff000000 | random.nextInt(0x1000000);
+            int x0 = random.nextInt(w);
+            int y0 = random.nextInt(h);
+            int x1 = Math.min(w, x0 + 10 + random.nextInt(120));
+            int y1 = Math.min(h, y0 + 10 + random.nextInt(80));
+            for (int y = y0; y < y1; y++) {
+                Arrays.fill(blocks.pixels, y * w + x0, y * w + x1, color);
+            }
+        }
+        images.put("blocks", blocks);
+        images.put("alpha", alpha);
+        return images;
+    }
+
+    private static final class Image {
+        final int width;
+        final int height;
+        final int[] pixels;
+
+        Image(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.pixels = new int[width * height];
+        }
+    }
+
+    private static final class Row {
+        String image;
+        String size;
+        int radius;
+        int downsample;
+        String engine;
+        //只含模糊本身
+        double millis;
+        //含缩小和放大
+        double totalMillis;
+        long allocatedBytes;
+        int maxError;
+        double psnr;
+    }
+}
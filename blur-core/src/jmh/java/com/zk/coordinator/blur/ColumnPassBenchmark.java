@@ -0,0 +1,64 @@
+package com.zk.coordinator.blur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只测纵向遍历：逐列按步长访问与分块并排访问的对比
+ * <p>
+ * ./gradlew :blur-core:jmh -PjmhInclude=ColumnPassBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ColumnPassBenchmark {
+
+    @Param({"1080", "1440"})
+    public int width;
+
+    @Param({"1920"})
+    public int height;
+
+    @Param({"5", "20"})
+    public int radius;
+
+    private int[] mPixels;
+    private BlurContext mContext;
+    private int[][] mStack;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mPixels = new int[width * height];
+        Random random = new Random(42);
+        for (int i = 0; i < mPixels.length; i++) {
+            mPixels[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        mContext = new BlurContext();
+        mContext.prepare(width, height, radius);
+        mStack = new int[radius + radius + 1][3];
+        //先跑一遍横向，填好中间缓冲
+        StackBlur.blurRows(mPixels, 0, width, width, height, radius, mContext, mContext.stack, 0, height);
+    }
+
+    @Benchmark
+    public int[] strided() {
+        StridedColumnPass.blurColumns(mPixels, width, height, radius, mContext, mStack, 0, width);
+        return mPixels;
+    }
+
+    @Benchmark
+    public int[] blocked() {
+        StackBlur.blurColumns(mPixels, 0, width, width, height, radius, mContext, mContext.columnState, 0, width);
+        return mPixels;
+    }
+}
@@ -0,0 +1,89 @@
+package com.zk.coordinator.blur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RGB_565 和 8 位亮度的纵向遍历：逐列按步长访问与分块并排访问的对比
+ * <p>
+ * ./gradlew :blur-core:jmh -PjmhInclude=CompactColumnPassBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompactColumnPassBenchmark {
+
+    @Param({"1080", "1440"})
+    public int width;
+
+    @Param({"1920"})
+    public int height;
+
+    @Param({"5", "20"})
+    public int radius;
+
+    //横向结果，作为纵向的输入
+    private short[] mShortTmp;
+    private byte[] mByteTmp;
+    private short[] mShortPixels;
+    private byte[] mBytePixels;
+    private BlurContext mContext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int size = width * height;
+        mShortTmp = new short[size];
+        mByteTmp = new byte[size];
+        mShortPixels = new short[size];
+        mBytePixels = new byte[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            mShortTmp[i] = (short) random.nextInt(0x10000);
+            mByteTmp[i] = (byte) random.nextInt(0x100);
+        }
+        mContext = new BlurContext();
+        mContext.prepareTables(radius);
+    }
+
+    @Benchmark
+    public short[] strided565() {
+        for (int x = 0; x < width; x++) {
+            CompactStackBlur.blurLine565(mShortTmp, x, width, mShortPixels, x, width, height, radius,
+                    mContext.dv, mContext.stack);
+        }
+        return mShortPixels;
+    }
+
+    @Benchmark
+    public short[] blocked565() {
+        CompactStackBlur.blurColumns565(mShortTmp, width, mShortPixels, 0, width, height, radius,
+                mContext.dv, mContext.columnState, 0, width);
+        return mShortPixels;
+    }
+
+    @Benchmark
+    public byte[] stridedLuma() {
+        for (int x = 0; x < width; x++) {
+            CompactStackBlur.blurLine8(mByteTmp, x, width, mBytePixels, x, width, height, radius,
+                    mContext.dv, mContext.stack);
+        }
+        return mBytePixels;
+    }
+
+    @Benchmark
+    public byte[] blockedLuma() {
+        CompactStackBlur.blurColumns8(mByteTmp, width, mBytePixels, 0, width, height, radius,
+                mContext.dv, mContext.columnState, 0, width);
+        return mBytePixels;
+    }
+}
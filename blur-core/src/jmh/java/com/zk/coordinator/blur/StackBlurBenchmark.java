@@ -0,0 +1,84 @@
+package com.zk.coordinator.blur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同尺寸、半径下各模糊实现的耗时
+ * <p>
+ * ./gradlew :blur-core:jmh -PjmhInclude=StackBlurBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StackBlurBenchmark {
+
+    @Param({"640x360", "1280x720", "1920x1080", "3840x2160"})
+    public String size;
+
+    @Param({"1", "5", "10", "20", "50"})
+    public int radius;
+
+    @Param({"reference", "serial", "parallel", "box", "gaussian", "summedArea"})
+    public String engine;
+
+    private int[] mPixels;
+    private int mWidth;
+    private int mHeight;
+    private BlurContext mContext;
+    private BlurEngine mEngine;
+    private ParallelStackBlur mParallelBlur;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int split = size.indexOf('x');
+        mWidth = Integer.parseInt(size.substring(0, split));
+        mHeight = Integer.parseInt(size.substring(split + 1));
+        mPixels = new int[mWidth * mHeight];
+        Random random = new Random(42);
+        for (int i = 0; i < mPixels.length; i++) {
+            mPixels[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        mContext = new BlurContext();
+        if ("parallel".equals(engine)) {
+            mParallelBlur = new ParallelStackBlur();
+            mEngine = mParallelBlur;
+        } else if ("box".equals(engine)) {
+            mEngine = BlurEngines.BOX;
+        } else if ("gaussian".equals(engine)) {
+            mEngine = BlurEngines.GAUSSIAN;
+        } else if ("summedArea".equals(engine)) {
+            mEngine = BlurEngines.SUMMED_AREA;
+        } else {
+            mEngine = BlurEngines.STACK;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (mParallelBlur != null) {
+            mParallelBlur.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int[] blur() {
+        if ("reference".equals(engine)) {
+            ReferenceStackBlur.blur(mPixels, mWidth, mHeight, radius);
+        } else {
+            mEngine.blur(mPixels, mWidth, mHeight, radius, mContext);
+        }
+        return mPixels;
+    }
+}
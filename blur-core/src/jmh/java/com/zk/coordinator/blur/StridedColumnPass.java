@@ -0,0 +1,108 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 分块之前的纵向遍历：逐列按 w 的步长访问中间缓冲，作为 {@link ColumnPassBenchmark} 的对照
+ */
+final class StridedColumnPass {
+
+    private StridedColumnPass() {
+    }
+
+    static void blurColumns(int[] pix, int w, int h, int radius, BlurContext context,
+                            int[][] stack, int x0, int x1) {
+        int hm = h - 1;
+        int div = radius + radius + 1;
+
+        int[] rgb = context.rgb;
+        int[] dv = context.dv;
+
+        int rsum, gsum, bsum, x, y, i, p, yp, yi;
+        int stackpointer;
+        int stackstart;
+        int[] sir;
+        int rbs;
+        int r1 = radius + 1;
+        int routsum, goutsum, boutsum;
+        int rinsum, ginsum, binsum;
+
+        for (x = x0; x < x1; x++) {
+            rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+            yp = -radius * w;
+            for (i = -radius; i <= radius; i++) {
+                yi = Math.max(0, yp) + x;
+
+                sir = stack[i + radius];
+
+                p = rgb[yi];
+                sir[0] = p >> 16;
+                sir[1] = (p >> 8) & 0xff;
+                sir[2] = p & 0xff;
+
+                rbs = r1 - Math.abs(i);
+
+                rsum += sir[0] * rbs;
+                gsum += sir[1] * rbs;
+                bsum += sir[2] * rbs;
+
+                if (i > 0) {
+                    rinsum += sir[0];
+                    ginsum += sir[1];
+                    binsum += sir[2];
+                } else {
+                    routsum += sir[0];
+                    goutsum += sir[1];
+                    boutsum += sir[2];
+                }
+
+                if (i < hm) {
+                    yp += w;
+                }
+            }
+            yi = x;
+            stackpointer = radius;
+            for (y = 0; y < h; y++) {
+                pix[yi] = (0xff000000 & pix[yi]) | (dv[rsum] << 16)
+                        | (dv[gsum] << 8) | dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                stackstart = stackpointer - radius + div;
+                sir = stack[stackstart % div];
+
+                routsum -= sir[0];
+                goutsum -= sir[1];
+                boutsum -= sir[2];
+
+                p = x + Math.min(y + r1, hm) * w;
+
+                p = rgb[p];
+                sir[0] = p >> 16;
+                sir[1] = (p >> 8) & 0xff;
+                sir[2] = p & 0xff;
+
+                rinsum += sir[0];
+                ginsum += sir[1];
+                binsum += sir[2];
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stack[stackpointer];
+
+                routsum += sir[0];
+                goutsum += sir[1];
+                boutsum += sir[2];
+
+                rinsum -= sir[0];
+                ginsum -= sir[1];
+                binsum -= sir[2];
+
+                yi += w;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.zk.coordinator.blur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 积分图建表一次后，每帧换半径出图的耗时，对比每帧完整 Stack Blur
+ * <p>
+ * ./gradlew :blur-core:jmh -PjmhInclude=SummedAreaTableBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SummedAreaTableBenchmark {
+
+    @Param({"1080x600", "1440x800"})
+    public String size;
+
+    @Param({"1", "2", "3"})
+    public int passes;
+
+    private int[] mSource;
+    private int[] mOut;
+    private int mWidth;
+    private int mHeight;
+    private int mRadius;
+    private SummedAreaTable mTable;
+    private BlurContext mContext;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int split = size.indexOf('x');
+        mWidth = Integer.parseInt(size.substring(0, split));
+        mHeight = Integer.parseInt(size.substring(split + 1));
+        mSource = new int[mWidth * mHeight];
+        Random random = new Random(42);
+        for (int i = 0; i < mSource.length; i++) {
+            mSource[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        mOut = new int[mSource.length];
+        mTable = new SummedAreaTable();
+        mTable.build(mSource, mWidth, mHeight);
+        mContext = new BlurContext();
+    }
+
+    /**
+     * 模拟弹簧回弹时半径在 1~20 之间逐帧变化
+     */
+    private int nextRadius() {
+        mRadius = mRadius % 20 + 1;
+        return mRadius;
+    }
+
+    @Benchmark
+    public int[] tablePerFrame() {
+        mTable.blur(nextRadius(), passes, mOut);
+        return mOut;
+    }
+
+    @Benchmark
+    public int[] stackBlurPerFrame() {
+        System.arraycopy(mSource, 0, mOut, 0, mOut.length);
+        StackBlur.blur(mOut, mWidth, mHeight, nextRadius(), mContext);
+        return mOut;
+    }
+}
@@ -0,0 +1,165 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 模糊计算的工作缓冲区，按图片尺寸和半径复用，稳定状态下每次模糊不再分配数组
+ * <p>
+ * 非线程安全，每个线程持有各自的实例
+ */
+public class BlurContext {
+
+    //像素缓冲
+    int[] pix;
+    //横向模糊后的中间结果，三个通道打包为 0x00RRGGBB，每像素 4 字节
+    int[] rgb;
+    //第二块中间缓冲，仅盒式模糊等需要来回倒换的实现按需分配
+    int[] scratch;
+    //除法查找表，来自 {@link DivisionTables} 的共享缓存
+    int[] dv;
+    //横向模糊栈，扁平的 int[div*3]
+    int[] stack;
+    //纵向分块遍历的状态
+    final StackBlur.ColumnState columnState = new StackBlur.ColumnState();
+    //行缓冲，供盒式、高斯等实现使用
+    int[] line;
+    //高斯卷积核及其对应的半径
+    int[] kernel;
+    int kernelRadius;
+    //RGB_565 和 8 位亮度的像素缓冲及横向结果，每像素 2 字节或 1 字节
+    short[] shortPix;
+    short[] shortTmp;
+    byte[] bytePix;
+    byte[] byteTmp;
+
+    //当前缓冲对应的尺寸
+    private int mWidth;
+    private int mHeight;
+    //当前查找表和栈对应的半径，-1 表示尚未准备
+    private int mRadius = -1;
+    //协作取消标记，可由其他线程设置，模糊实现在条带之间检查
+    private volatile boolean mCanceled;
+
+    /**
+     * 获取至少能容纳 w*h 个像素的缓冲，尺寸不变时直接复用
+     */
+    public int[] obtainPixels(int w, int h) {
+        ensureSize(w, h);
+        return pix;
+    }
+
+    /**
+     * 按尺寸和半径准备所有工作缓冲
+     */
+    void prepare(int w, int h, int radius) {
+        ensureSize(w, h);
+        prepareTables(radius);
+    }
+
+    /**
+     * 只准备查找表和横向模糊栈，供不使用 int 像素缓冲的实现
+     */
+    void prepareTables(int radius) {
+        if (mRadius != radius) {
+            dv = DivisionTables.get(radius);
+            stack = new int[(radius + radius + 1) * 3];
+            mRadius = radius;
+        }
+    }
+
+    /**
+     * 只准备像素和中间缓冲，不计算 Stack Blur 专用的查找表
+     */
+    void prepareBuffers(int w, int h) {
+        ensureSize(w, h);
+    }
+
+    /**
+     * 获取至少 length 个元素的 RGB_565 像素缓冲，与 int 像素缓冲互不影响
+     */
+    public short[] obtainShorts(int length) {
+        if (shortPix == null || shortPix.length < length) {
+            shortPix = new short[length];
+        }
+        return shortPix;
+    }
+
+    /**
+     * 获取至少 length 个元素的 8 位像素缓冲
+     */
+    public byte[] obtainBytes(int length) {
+        if (bytePix == null || bytePix.length < length) {
+            bytePix = new byte[length];
+        }
+        return bytePix;
+    }
+
+    short[] obtainShortTmp(int length) {
+        if (shortTmp == null || shortTmp.length < length) {
+            shortTmp = new short[length];
+        }
+        return shortTmp;
+    }
+
+    byte[] obtainByteTmp(int length) {
+        if (byteTmp == null || byteTmp.length < length) {
+            byteTmp = new byte[length];
+        }
+        return byteTmp;
+    }
+
+    int[] obtainScratch() {
+        if (scratch == null || scratch.length < rgb.length) {
+            scratch = new int[rgb.length];
+        }
+        return scratch;
+    }
+
+    int[] obtainLine(int length) {
+        if (line == null || line.length < length) {
+            line = new int[length];
+        }
+        return line;
+    }
+
+    private void ensureSize(int w, int h) {
+        if (w == mWidth && h == mHeight) {
+            return;
+        }
+        int wh = w * h;
+        if (pix == null || pix.length < wh) {
+            pix = new int[wh];
+            rgb = new int[wh];
+            scratch = null;
+        }
+        mWidth = w;
+        mHeight = h;
+    }
+
+    /**
+     * 请求取消正在进行的模糊，可在任意线程调用；被取消的模糊提前返回，像素内容不完整，调用方应丢弃
+     */
+    public void cancel() {
+        mCanceled = true;
+    }
+
+    public boolean isCanceled() {
+        return mCanceled;
+    }
+
+    /**
+     * 开始新一次模糊前清除取消标记
+     */
+    public void clearCanceled() {
+        mCanceled = false;
+    }
+
+    /**
+     * 释放所有缓冲
+     */
+    public void release() {
+        pix = rgb = scratch = dv = stack = line = kernel = null;
+        shortPix = shortTmp = null;
+        bytePix = byteTmp = null;
+        mWidth = mHeight = kernelRadius = 0;
+        mRadius = -1;
+    }
+}
@@ -0,0 +1,12 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 模糊算法策略接口，实现需无状态或自行保证线程安全，工作缓冲统一从 {@link BlurContext} 获取
+ */
+public interface BlurEngine {
+
+    /**
+     * 原地模糊 pix 中 w*h 个像素，保留 alpha 通道；radius 含义与 Stack Blur 半径一致
+     */
+    void blur(int[] pix, int w, int h, int radius, BlurContext context);
+}
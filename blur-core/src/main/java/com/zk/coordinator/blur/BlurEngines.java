@@ -0,0 +1,93 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 内置模糊实现和全局默认实现
+ */
+public final class BlurEngines {
+
+    /**
+     * 原始的 Stack Blur
+     */
+    public static final BlurEngine STACK = new BlurEngine() {
+        @Override
+        public void blur(int[] pix, int w, int h, int radius, BlurContext context) {
+            StackBlur.blur(pix, w, h, radius, context);
+        }
+    };
+
+    /**
+     * 三次盒式模糊近似，每像素开销与半径无关
+     */
+    public static final BlurEngine BOX = new BoxBlur();
+
+    /**
+     * 定点整数可分离高斯模糊
+     */
+    public static final BlurEngine GAUSSIAN = new GaussianBlur();
+
+    /**
+     * 积分图三次叠加近似高斯，每次调用重新建表
+     */
+    public static final BlurEngine SUMMED_AREA = new SummedAreaBlur(3);
+
+    private static volatile BlurEngine sDefault = STACK;
+    private static ParallelStackBlur sParallel;
+
+    private BlurEngines() {
+    }
+
+    /**
+     * 多核 Stack Blur，首次使用时创建线程池
+     */
+    public static synchronized BlurEngine parallel() {
+        if (sParallel == null) {
+            sParallel = new ParallelStackBlur();
+        }
+        return sParallel;
+    }
+
+    public static BlurEngine getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * 设置全局默认实现，未显式指定实现的调用都会使用它
+     */
+    public static void setDefault(BlurEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("engine == null");
+        }
+        sDefault = engine;
+    }
+
+    /**
+     * 实现的名称，用于缓存键等需要区分输出的场合；多核 Stack Blur 与 {@link #STACK} 输出逐位相同，
+     * 名称也相同，其他实现用类名
+     */
+    public static String name(BlurEngine engine) {
+        if (engine == STACK || engine instanceof ParallelStackBlur) {
+            return "stack";
+        }
+        if (engine == BOX) {
+            return "box";
+        }
+        if (engine == GAUSSIAN) {
+            return "gaussian";
+        }
+        if (engine == SUMMED_AREA) {
+            return "summedArea";
+        }
+        return engine.getClass().getName();
+    }
+
+    /**
+     * Stack Blur 半径对应卷积核的标准差，用于让其他实现的模糊程度与之接近
+     */
+    static double sigmaForRadius(int radius) {
+        double weighted = 0;
+        for (int i = 1; i <= radius; i++) {
+            weighted += (double) i * i * (radius + 1 - i);
+        }
+        return Math.sqrt(2 * weighted) / (radius + 1);
+    }
+}
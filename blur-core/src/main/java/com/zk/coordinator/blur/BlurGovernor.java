@@ -0,0 +1,258 @@
+package com.zk.coordinator.blur;
+
+import java.util.Arrays;
+
+/**
+ * 按时间预算选择模糊质量：从历次实测耗时学习每个质量级别在各半径档位下的每像素开销，
+ * 每次选择预计能在预算内完成的最高级别，都超出时退到最低级别
+ * <p>
+ * 最近一次实测超出预算的级别不会被直接选中：它的估计开销按经过的时间以 {@link #HALF_LIFE_NANOS}
+ * 为半衰期衰减，衰减到预算内后，只在比当前级别高一级、且距上次试探超过 {@link #PROBE_INTERVAL_NANOS}
+ * 时试探一次，试探失败最多多出一帧超时。冷启动时从最低级别开始，没有样本的级别按已测得的低级别开销
+ * 换算，留足余量时直接选中，否则同样只做试探
+ * <p>
+ * 级别按质量从高到低排列，每级由缩放比例和模糊算法组成；开销以原图像素计，
+ * 包含缩放等管线内的全部工作。非线程安全
+ */
+public class BlurGovernor {
+
+    /**
+     * 默认级别：原尺寸 Stack Blur 逐级缩小，最后两级换成盒式模糊
+     */
+    public static final Level[] DEFAULT_LEVELS = {
+            new Level("stack@1", 1f, BlurEngines.STACK),
+            new Level("stack@1/2", 0.5f, BlurEngines.STACK),
+            new Level("stack@1/4", 0.25f, BlurEngines.STACK),
+            new Level("box@1/4", 0.25f, BlurEngines.BOX),
+            new Level("box@1/8", 0.125f, BlurEngines.BOX),
+    };
+
+    /**
+     * 超出预算的级别估计开销的衰减半衰期
+     */
+    public static final long HALF_LIFE_NANOS = 5000000000L;
+    /**
+     * 两次试探之间的最短间隔
+     */
+    public static final long PROBE_INTERVAL_NANOS = 3000000000L;
+
+    //半径档位：1, 2~3, 4~7, 8~15, 16~31, 32 以上
+    private static final int RADIUS_BUCKETS = 6;
+    //指数滑动平均中新样本的权重
+    private static final double SMOOTHING = 0.25;
+    //没有样本的级别由低级别换算出的开销需在预算的这个比例以内才会被选中
+    private static final double EXTRAPOLATION_MARGIN = 0.5;
+    //级别都没有样本时 estimateNanos 返回的原尺寸每像素开销，只用于展示，不参与选择
+    private static final double DEFAULT_NS_PER_PIXEL = 12;
+
+    private final Level[] mLevels;
+    //[级别][半径档位] 每个原图像素的纳秒数，0 表示还没有样本
+    private final double[][] mNsPerPixel;
+    //[级别][半径档位] 最近一次样本的时间和是否超出预算
+    private final long[][] mSampleTimes;
+    private final boolean[][] mOverBudget;
+    private final long[] mChosenCounts;
+    private long mOverBudgetCount;
+    private long mLastProbeTime;
+    private boolean mProbed;
+
+    public BlurGovernor() {
+        this(DEFAULT_LEVELS);
+    }
+
+    public BlurGovernor(Level[] levels) {
+        if (levels.length == 0) {
+            throw new IllegalArgumentException("levels is empty");
+        }
+        mLevels = levels.clone();
+        mNsPerPixel = new double[mLevels.length][RADIUS_BUCKETS];
+        mSampleTimes = new long[mLevels.length][RADIUS_BUCKETS];
+        mOverBudget = new boolean[mLevels.length][RADIUS_BUCKETS];
+        mChosenCounts = new long[mLevels.length];
+    }
+
+    /**
+     * 选出预计能在 budgetNanos 内模糊 w*h 原图的最高质量级别，返回级别下标
+     *
+     * @param radius 按原图尺寸计算的半径
+     */
+    public int choose(int w, int h, int radius, long budgetNanos) {
+        return choose(w, h, radius, budgetNanos, System.nanoTime());
+    }
+
+    /**
+     * 指定当前时间，时钟与 {@link System#nanoTime()} 相同，便于回放
+     */
+    public int choose(int w, int h, int radius, long budgetNanos, long nowNanos) {
+        double pixels = (double) w * h;
+        int chosen = mLevels.length - 1;
+        for (int i = 0; i < mLevels.length - 1; i++) {
+            int bucket = bucket(scaledRadius(i, radius));
+            double nsPerPixel = mNsPerPixel[i][bucket];
+            if (nsPerPixel == 0) {
+                double extrapolated = extrapolate(i, radius);
+                if (extrapolated > 0 && extrapolated * pixels <= budgetNanos * EXTRAPOLATION_MARGIN) {
+                    chosen = i;
+                    break;
+                }
+            } else if (!mOverBudget[i][bucket] && nsPerPixel * pixels <= budgetNanos) {
+                chosen = i;
+                break;
+            }
+        }
+        //超出预算或换算开销不够宽裕的高一级，只试探，且有频率限制
+        int probe = chosen - 1;
+        if (probe >= 0 && (!mProbed || nowNanos - mLastProbeTime >= PROBE_INTERVAL_NANOS)) {
+            int bucket = bucket(scaledRadius(probe, radius));
+            double nsPerPixel = mNsPerPixel[probe][bucket] == 0
+                    ? extrapolate(probe, radius)
+                    : decayed(probe, bucket, nowNanos);
+            if (nsPerPixel > 0 && nsPerPixel * pixels <= budgetNanos) {
+                chosen = probe;
+                mLastProbeTime = nowNanos;
+                mProbed = true;
+            }
+        }
+        mChosenCounts[chosen]++;
+        return chosen;
+    }
+
+    /**
+     * 预计耗时：有样本时为学习到的开销，否则按低级别换算，都没有时按默认开销折算
+     */
+    public double estimateNanos(int level, int w, int h, int radius) {
+        double nsPerPixel = mNsPerPixel[level][bucket(scaledRadius(level, radius))];
+        if (nsPerPixel == 0) {
+            nsPerPixel = extrapolate(level, radius);
+        }
+        if (nsPerPixel <= 0) {
+            float scale = mLevels[level].scale;
+            nsPerPixel = DEFAULT_NS_PER_PIXEL * scale * scale;
+        }
+        return nsPerPixel * w * h;
+    }
+
+    /**
+     * 记录一次实测耗时，用于修正该级别在该半径档位下的开销
+     */
+    public void record(int level, int w, int h, int radius, long elapsedNanos, long budgetNanos) {
+        record(level, w, h, radius, elapsedNanos, budgetNanos, System.nanoTime());
+    }
+
+    public void record(int level, int w, int h, int radius, long elapsedNanos, long budgetNanos, long nowNanos) {
+        boolean over = elapsedNanos > budgetNanos;
+        if (over) {
+            mOverBudgetCount++;
+        }
+        long pixels = (long) w * h;
+        if (pixels <= 0) {
+            return;
+        }
+        double sample = (double) elapsedNanos / pixels;
+        int bucket = bucket(scaledRadius(level, radius));
+        double[] row = mNsPerPixel[level];
+        row[bucket] = row[bucket] == 0 ? sample : row[bucket] + SMOOTHING * (sample - row[bucket]);
+        mSampleTimes[level][bucket] = nowNanos;
+        mOverBudget[level][bucket] = over;
+    }
+
+    /**
+     * 没被选中的级别按距上次样本的时间衰减后的开销
+     */
+    private double decayed(int level, int bucket, long nowNanos) {
+        double age = Math.max(0, nowNanos - mSampleTimes[level][bucket]);
+        return mNsPerPixel[level][bucket] * Math.pow(0.5, age / HALF_LIFE_NANOS);
+    }
+
+    /**
+     * 没有样本的级别按最近的有样本的低级别换算：同一算法下每原图像素开销与缩放比例的平方成正比，
+     * 都没有样本时返回 0
+     */
+    private double extrapolate(int level, int radius) {
+        float scale = mLevels[level].scale;
+        for (int j = level + 1; j < mLevels.length; j++) {
+            double nsPerPixel = mNsPerPixel[j][bucket(scaledRadius(j, radius))];
+            if (nsPerPixel > 0) {
+                float ratio = scale / mLevels[j].scale;
+                return nsPerPixel * ratio * ratio;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 缩放后实际使用的半径
+     */
+    public int scaledRadius(int level, int radius) {
+        return Math.max(1, Math.round(radius * mLevels[level].scale));
+    }
+
+    public Level getLevel(int level) {
+        return mLevels[level];
+    }
+
+    public int getLevelCount() {
+        return mLevels.length;
+    }
+
+    /**
+     * 该级别被选中的次数，下标越大说明降级越多
+     */
+    public long getChosenCount(int level) {
+        return mChosenCounts[level];
+    }
+
+    /**
+     * 实测超出预算的次数
+     */
+    public long getOverBudgetCount() {
+        return mOverBudgetCount;
+    }
+
+    /**
+     * 清空学习到的开销和计数
+     */
+    public void reset() {
+        for (int i = 0; i < mLevels.length; i++) {
+            Arrays.fill(mNsPerPixel[i], 0);
+            Arrays.fill(mSampleTimes[i], 0);
+            Arrays.fill(mOverBudget[i], false);
+        }
+        mProbed = false;
+        Arrays.fill(mChosenCounts, 0);
+        mOverBudgetCount = 0;
+    }
+
+    private static int bucket(int radius) {
+        int bucket = 31 - Integer.numberOfLeadingZeros(Math.max(1, radius));
+        return Math.min(bucket, RADIUS_BUCKETS - 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("BlurGovernor{");
+        for (int i = 0; i < mLevels.length; i++) {
+            sb.append(mLevels[i].name).append('=').append(mChosenCounts[i]).append(", ");
+        }
+        return sb.append("overBudget=").append(mOverBudgetCount).append('}').toString();
+    }
+
+    /**
+     * 一个质量级别
+     */
+    public static final class Level {
+        public final String name;
+        //缩放比例，(0, 1]
+        public final float scale;
+        public final BlurEngine engine;
+
+        public Level(String name, float scale, BlurEngine engine) {
+            if (scale <= 0 || scale > 1) {
+                throw new IllegalArgumentException("scale must be in (0, 1]: " + scale);
+            }
+            this.name = name;
+            this.scale = scale;
+            this.engine = engine;
+        }
+    }
+}
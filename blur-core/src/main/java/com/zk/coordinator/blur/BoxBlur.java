@@ -0,0 +1,120 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 三次盒式模糊近似高斯，三个盒子的总方差与同半径 Stack Blur 的卷积核一致，
+ * 用滑动窗口求和，每像素开销与半径无关
+ */
+public class BoxBlur implements BlurEngine {
+
+    private static final int PASSES = 3;
+
+    @Override
+    public void blur(int[] pix, int w, int h, int radius, BlurContext context) {
+        if (radius < 1) {
+            return;
+        }
+        context.prepareBuffers(w, h);
+        int[] a = context.rgb;
+        int[] b = context.obtainScratch();
+        int[] boxes = boxRadii(BlurEngines.sigmaForRadius(radius));
+
+        //横向三次：pix -> a -> b -> a，纵向三次：a -> b -> a -> pix，每次之间检查取消
+        blurHorizontal(pix, a, w, h, boxes[0]);
+        blurHorizontal(a, b, w, h, boxes[1]);
+        blurHorizontal(b, a, w, h, boxes[2]);
+        if (context.isCanceled()) {
+            return;
+        }
+        blurVertical(a, b, w, h, boxes[0]);
+        blurVertical(b, a, w, h, boxes[1]);
+        blurVertical(a, b, w, h, boxes[2]);
+        if (context.isCanceled()) {
+            return;
+        }
+        for (int i = 0, wh = w * h; i < wh; i++) {
+            pix[i] = (pix[i] & 0xff000000) | b[i];
+        }
+    }
+
+    /**
+     * 计算三个盒子的半径，使总方差等于 sigma 的平方
+     */
+    static int[] boxRadii(double sigma) {
+        double variance = sigma * sigma;
+        double idealWidth = Math.sqrt(12 * variance / PASSES + 1);
+        int lower = (int) Math.floor(idealWidth);
+        if (lower % 2 == 0) {
+            lower--;
+        }
+        int upper = lower + 2;
+        double idealCount = (12 * variance - PASSES * lower * lower - 4 * PASSES * lower - 3 * PASSES)
+                / (-4 * lower - 4);
+        long count = Math.round(idealCount);
+        int[] radii = new int[PASSES];
+        for (int i = 0; i < PASSES; i++) {
+            int width = i < count ? lower : upper;
+            radii[i] = Math.max(0, (width - 1) / 2);
+        }
+        return radii;
+    }
+
+    /**
+     * 横向盒式模糊，只处理RGB，边缘像素复制延伸
+     */
+    static void blurHorizontal(int[] src, int[] dst, int w, int h, int radius) {
+        int wm = w - 1;
+        int mul = 65536 / (radius + radius + 1);
+        for (int y = 0, base = 0; y < h; y++, base += w) {
+            int first = src[base];
+            int rsum = (first >> 16 & 0xff) * (radius + 1);
+            int gsum = (first >> 8 & 0xff) * (radius + 1);
+            int bsum = (first & 0xff) * (radius + 1);
+            for (int i = 1; i <= radius; i++) {
+                int p = src[base + Math.min(i, wm)];
+                rsum += p >> 16 & 0xff;
+                gsum += p >> 8 & 0xff;
+                bsum += p & 0xff;
+            }
+            for (int x = 0; x < w; x++) {
+                dst[base + x] = ((rsum * mul + 32768) >>> 16) << 16
+                        | ((gsum * mul + 32768) >>> 16) << 8
+                        | ((bsum * mul + 32768) >>> 16);
+                int in = src[base + Math.min(x + radius + 1, wm)];
+                int out = src[base + Math.max(x - radius, 0)];
+                rsum += (in >> 16 & 0xff) - (out >> 16 & 0xff);
+                gsum += (in >> 8 & 0xff) - (out >> 8 & 0xff);
+                bsum += (in & 0xff) - (out & 0xff);
+            }
+        }
+    }
+
+    /**
+     * 纵向盒式模糊，只处理RGB，边缘像素复制延伸
+     */
+    static void blurVertical(int[] src, int[] dst, int w, int h, int radius) {
+        int hm = h - 1;
+        int mul = 65536 / (radius + radius + 1);
+        for (int x = 0; x < w; x++) {
+            int first = src[x];
+            int rsum = (first >> 16 & 0xff) * (radius + 1);
+            int gsum = (first >> 8 & 0xff) * (radius + 1);
+            int bsum = (first & 0xff) * (radius + 1);
+            for (int i = 1; i <= radius; i++) {
+                int p = src[Math.min(i, hm) * w + x];
+                rsum += p >> 16 & 0xff;
+                gsum += p >> 8 & 0xff;
+                bsum += p & 0xff;
+            }
+            for (int y = 0, yi = x; y < h; y++, yi += w) {
+                dst[yi] = ((rsum * mul + 32768) >>> 16) << 16
+                        | ((gsum * mul + 32768) >>> 16) << 8
+                        | ((bsum * mul + 32768) >>> 16);
+                int in = src[Math.min(y + radius + 1, hm) * w + x];
+                int out = src[Math.max(y - radius, 0) * w + x];
+                rsum += (in >> 16 & 0xff) - (out >> 16 & 0xff);
+                gsum += (in >> 8 & 0xff) - (out >> 8 & 0xff);
+                bsum += (in & 0xff) - (out & 0xff);
+            }
+        }
+    }
+}
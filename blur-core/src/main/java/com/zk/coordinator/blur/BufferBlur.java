@@ -0,0 +1,85 @@
+package com.zk.coordinator.blur;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * 直接在 NIO 缓冲上模糊，配合 Bitmap.copyPixelsToBuffer / copyPixelsFromBuffer 使用，
+ * 省去 getPixels / setPixels 的颜色转换
+ * <p>
+ * 缓冲中的像素是内存中的原始排列，ARGB_8888 在小端设备上按本机字节序读出为 0xAABBGGRR；
+ * 各实现对三个颜色通道的处理是对称的，只要 alpha 在最高字节，通道顺序不影响结果。
+ * 坐标均为绝对下标，不读写缓冲的 position
+ */
+public final class BufferBlur {
+
+    private BufferBlur() {
+    }
+
+    /**
+     * 原地模糊 ByteBuffer 中的子区域，按本机字节序解释为 int 像素
+     *
+     * @param byteOffset 区域左上角的字节下标，4 的倍数
+     * @param rowBytes   行跨度的字节数，4 的倍数，通常为 Bitmap.getRowBytes()
+     */
+    public static void blur(ByteBuffer buffer, int byteOffset, int rowBytes, int w, int h, int radius,
+                            BlurContext context, BlurEngine engine) {
+        if ((byteOffset & 3) != 0 || (rowBytes & 3) != 0) {
+            throw new IllegalArgumentException("offset and rowBytes must be multiples of 4: "
+                    + byteOffset + ", " + rowBytes);
+        }
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.clear();
+        IntBuffer ints = bytes.order(ByteOrder.nativeOrder()).asIntBuffer();
+        blur(ints, byteOffset >> 2, rowBytes >> 2, w, h, radius, context, engine);
+    }
+
+    /**
+     * 原地模糊 IntBuffer 中从 offset 开始、行跨度为 stride 的 w*h 子区域
+     * <p>
+     * 有底层数组时 Stack Blur 直接按跨度读写数组，其他实现在区域连续时直接使用数组；
+     * 其余情况（直接缓冲、非连续子区域）逐行批量读入 context 的复用缓冲，模糊后逐行写回；
+     * 此时 buffer 不能是包装 context 自身像素缓冲的 IntBuffer
+     */
+    public static void blur(IntBuffer buffer, int offset, int stride, int w, int h, int radius,
+                            BlurContext context, BlurEngine engine) {
+        if (radius < 1 || w < 1 || h < 1) {
+            return;
+        }
+        if (stride < w || offset < 0 || offset + (long) (h - 1) * stride + w > buffer.capacity()) {
+            throw new IndexOutOfBoundsException("region " + w + "x" + h + " at " + offset
+                    + " stride " + stride + " exceeds capacity " + buffer.capacity());
+        }
+        if (buffer.isReadOnly()) {
+            throw new IllegalArgumentException("buffer is read-only");
+        }
+        if (buffer.hasArray()) {
+            int[] array = buffer.array();
+            int start = buffer.arrayOffset() + offset;
+            if (engine == BlurEngines.STACK) {
+                StackBlur.blur(array, start, stride, w, h, radius, context);
+                return;
+            }
+            if (start == 0 && stride == w) {
+                engine.blur(array, w, h, radius, context);
+                return;
+            }
+        }
+        int[] pix = context.obtainPixels(w, h);
+        IntBuffer rows = buffer.duplicate();
+        rows.clear();
+        for (int y = 0; y < h; y++) {
+            rows.position(offset + y * stride);
+            rows.get(pix, y * w, w);
+        }
+        engine.blur(pix, w, h, radius, context);
+        if (context.isCanceled()) {
+            return;
+        }
+        for (int y = 0; y < h; y++) {
+            rows.position(offset + y * stride);
+            rows.put(pix, y * w, w);
+        }
+    }
+}
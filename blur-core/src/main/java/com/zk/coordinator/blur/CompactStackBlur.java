@@ -0,0 +1,403 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 低精度像素格式的 Stack Blur：RGB_565（每像素 2 字节）和单通道 8 位亮度（每像素 1 字节），
+ * 像素缓冲和横向结果的内存与带宽分别是 ARGB 版本的 1/2 和 1/4
+ * <p>
+ * RGB_565 在计算时把各通道扩展为 8 位，横向结果重新量化为 565 后再做纵向，
+ * 每个通道多出至多一个量化级的误差，重度模糊的背景上看不出来。没有 alpha 通道
+ */
+public final class CompactStackBlur {
+
+    //8 位通道值量化为 5 位、6 位，四舍五入
+    private static final byte[] TO_5 = new byte[256];
+    private static final byte[] TO_6 = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            TO_5[i] = (byte) ((i * 31 + 127) / 255);
+            TO_6[i] = (byte) ((i * 63 + 127) / 255);
+        }
+    }
+
+    //打包的纵向模糊中 255 * (radius + 1)^2 不超过 21 位的最大半径
+    static final int MAX_PACKED_RADIUS = 89;
+    private static final int LANE_MASK = (1 << 21) - 1;
+
+    private CompactStackBlur() {
+    }
+
+    /**
+     * 原地模糊 RGB_565 像素中从 offset 开始、行跨度为 stride 的 w*h 区域；
+     * context 被取消时在条带之间提前返回
+     */
+    public static void blur565(short[] pix, int offset, int stride, int w, int h, int radius,
+                               BlurContext context) {
+        if (radius < 1) {
+            return;
+        }
+        context.prepareTables(radius);
+        short[] tmp = context.obtainShortTmp(w * h);
+        int[] dv = context.dv;
+        int[] stack = context.stack;
+        for (int y = 0; y < h; y++) {
+            if (y % StackBlur.BAND == 0 && context.isCanceled()) {
+                return;
+            }
+            blurLine565(pix, offset + y * stride, 1, tmp, y * w, 1, w, radius, dv, stack);
+        }
+        for (int x = 0; x < w; x += StackBlur.BAND) {
+            if (context.isCanceled()) {
+                return;
+            }
+            blurColumns565(tmp, w, pix, offset, stride, h, radius, dv, context.columnState,
+                    x, Math.min(x + StackBlur.BAND, w));
+        }
+    }
+
+    /**
+     * 原地模糊 8 位单通道像素中从 offset 开始、行跨度为 stride 的 w*h 区域，
+     * 用于亮度或 ALPHA_8 蒙版
+     */
+    public static void blurLuma(byte[] pix, int offset, int stride, int w, int h, int radius,
+                                BlurContext context) {
+        if (radius < 1) {
+            return;
+        }
+        context.prepareTables(radius);
+        byte[] tmp = context.obtainByteTmp(w * h);
+        int[] dv = context.dv;
+        int[] stack = context.stack;
+        for (int y = 0; y < h; y++) {
+            if (y % StackBlur.BAND == 0 && context.isCanceled()) {
+                return;
+            }
+            blurLine8(pix, offset + y * stride, 1, tmp, y * w, 1, w, radius, dv, stack);
+        }
+        for (int x = 0; x < w; x += StackBlur.BAND) {
+            if (context.isCanceled()) {
+                return;
+            }
+            blurColumns8(tmp, w, pix, offset, stride, h, radius, dv, context.columnState,
+                    x, Math.min(x + StackBlur.BAND, w));
+        }
+    }
+
+    /**
+     * ARGB 转 RGB_565，与 Bitmap RGB_565 的像素布局一致
+     */
+    public static short toRgb565(int argb) {
+        return (short) ((TO_5[(argb >> 16) & 0xff] << 11) | (TO_6[(argb >> 8) & 0xff] << 5)
+                | TO_5[argb & 0xff]);
+    }
+
+    /**
+     * ARGB 的亮度，BT.601 系数的定点近似，取值 0~255
+     */
+    public static int luma(int argb) {
+        return (((argb >> 16) & 0xff) * 77 + ((argb >> 8) & 0xff) * 150 + (argb & 0xff) * 29) >> 8;
+    }
+
+    /**
+     * 模糊一条 RGB_565 像素线：读取 src 中从 from 开始、步长为 step 的 n 个像素，
+     * 写入 dst 中从 to 开始、步长为 dstStep 的位置；栈的用法与 StackBlur.blurRow 一致
+     */
+    static void blurLine565(short[] src, int from, int step, short[] dst, int to, int dstStep,
+                                    int n, int radius, int[] dv, int[] stack) {
+        int nm = n - 1;
+        int div = radius + radius + 1;
+        int div3 = div * 3;
+        int r1 = radius + 1;
+
+        int rsum, gsum, bsum, routsum, goutsum, boutsum, rinsum, ginsum, binsum;
+        int i, p, pr, pg, pb, rbs, sir;
+
+        rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+        for (i = -radius; i <= radius; i++) {
+            p = src[from + Math.min(nm, Math.max(i, 0)) * step];
+            pr = red(p);
+            pg = green(p);
+            pb = blue(p);
+            sir = (i + radius) * 3;
+            stack[sir] = pr;
+            stack[sir + 1] = pg;
+            stack[sir + 2] = pb;
+            rbs = r1 - Math.abs(i);
+            rsum += pr * rbs;
+            gsum += pg * rbs;
+            bsum += pb * rbs;
+            if (i > 0) {
+                rinsum += pr;
+                ginsum += pg;
+                binsum += pb;
+            } else {
+                routsum += pr;
+                goutsum += pg;
+                boutsum += pb;
+            }
+        }
+
+        int center = radius * 3;
+        int start = StackBlur.wrap(center + r1 * 3, div3);
+        int next = r1;
+        int di = to;
+        for (int k = 0; k < n; k++, di += dstStep) {
+            dst[di] = (short) ((TO_5[dv[rsum]] << 11) | (TO_6[dv[gsum]] << 5) | TO_5[dv[bsum]]);
+
+            rsum -= routsum;
+            gsum -= goutsum;
+            bsum -= boutsum;
+
+            routsum -= stack[start];
+            goutsum -= stack[start + 1];
+            boutsum -= stack[start + 2];
+
+            p = src[from + Math.min(next++, nm) * step];
+            pr = red(p);
+            pg = green(p);
+            pb = blue(p);
+            stack[start] = pr;
+            stack[start + 1] = pg;
+            stack[start + 2] = pb;
+
+            rinsum += pr;
+            ginsum += pg;
+            binsum += pb;
+
+            rsum += rinsum;
+            gsum += ginsum;
+            bsum += binsum;
+
+            center = StackBlur.wrap(center + 3, div3);
+            start = StackBlur.wrap(start + 3, div3);
+
+            pr = stack[center];
+            pg = stack[center + 1];
+            pb = stack[center + 2];
+
+            routsum += pr;
+            goutsum += pg;
+            boutsum += pb;
+
+            rinsum -= pr;
+            ginsum -= pg;
+            binsum -= pb;
+        }
+    }
+
+    /**
+     * 模糊一条 8 位单通道像素线，参数含义同 {@link #blurLine565}
+     */
+    static void blurLine8(byte[] src, int from, int step, byte[] dst, int to, int dstStep,
+                                  int n, int radius, int[] dv, int[] stack) {
+        int nm = n - 1;
+        int div = radius + radius + 1;
+        int r1 = radius + 1;
+
+        int sum = 0, outsum = 0, insum = 0;
+        int i, p;
+
+        for (i = -radius; i <= radius; i++) {
+            p = src[from + Math.min(nm, Math.max(i, 0)) * step] & 0xff;
+            stack[i + radius] = p;
+            sum += p * (r1 - Math.abs(i));
+            if (i > 0) {
+                insum += p;
+            } else {
+                outsum += p;
+            }
+        }
+
+        int center = radius;
+        int start = StackBlur.wrap(center + r1, div);
+        int next = r1;
+        int di = to;
+        for (int k = 0; k < n; k++, di += dstStep) {
+            dst[di] = (byte) dv[sum];
+
+            sum -= outsum;
+            outsum -= stack[start];
+
+            p = src[from + Math.min(next++, nm) * step] & 0xff;
+            stack[start] = p;
+            insum += p;
+            sum += insum;
+
+            center = StackBlur.wrap(center + 1, div);
+            start = StackBlur.wrap(start + 1, div);
+
+            p = stack[center];
+            outsum += p;
+            insum -= p;
+        }
+    }
+
+    /**
+     * 纵向模糊 RGB_565 的 [x0, x1) 列：从行跨度为 w 的横向结果 src 读取，写回 pix，
+     * 分块方式与 {@link StackBlur#blurColumns} 相同
+     * <p>
+     * 三个通道扩展为 8 位后打包在一个 long 中，每通道 21 位，一次加减同时更新三个通道，
+     * 每列只有三个累加器；各通道的部分和都不为负，不会向相邻通道借位。栈中存放原始的 565 像素，
+     * 布局为 [栈槽][列]。半径超过 {@link #MAX_PACKED_RADIUS} 时加权和会超出 21 位，改为逐列模糊
+     */
+    static void blurColumns565(short[] src, int w, short[] pix, int offset, int stride, int h, int radius,
+                               int[] dv, StackBlur.ColumnState state, int x0, int x1) {
+        int div = radius + radius + 1;
+        state.prepare(div);
+        int[] stack = state.stack;
+        if (radius > MAX_PACKED_RADIUS) {
+            for (int x = x0; x < x1; x++) {
+                blurLine565(src, x, w, pix, offset + x, stride, h, radius, dv, stack);
+            }
+            return;
+        }
+        int hm = h - 1;
+        int r1 = radius + 1;
+
+        long[] sum = state.packedSum;
+        long[] insum = state.packedInsum;
+        long[] outsum = state.packedOutsum;
+
+        int c, i, p, y, yi, sir, rbs;
+        long s, e;
+        int stackpointer;
+
+        for (int bx = x0; bx < x1; bx += StackBlur.ColumnState.BLOCK) {
+            int n = Math.min(StackBlur.ColumnState.BLOCK, x1 - bx);
+            for (c = 0; c < n; c++) {
+                sum[c] = insum[c] = outsum[c] = 0;
+            }
+            for (i = -radius; i <= radius; i++) {
+                yi = Math.max(0, Math.min(i, hm)) * w + bx;
+                rbs = r1 - Math.abs(i);
+                sir = (i + radius) * StackBlur.ColumnState.BLOCK;
+                for (c = 0; c < n; c++) {
+                    p = src[yi + c];
+                    stack[sir + c] = p;
+                    e = packed(p);
+                    sum[c] += e * rbs;
+                    if (i > 0) {
+                        insum[c] += e;
+                    } else {
+                        outsum[c] += e;
+                    }
+                }
+            }
+            stackpointer = radius;
+            yi = offset + bx;
+            for (y = 0; y < h; y++) {
+                int start = StackBlur.wrap(stackpointer + r1, div) * StackBlur.ColumnState.BLOCK;
+                int next = StackBlur.wrap(stackpointer + 1, div);
+                int nextStart = next * StackBlur.ColumnState.BLOCK;
+                int from = Math.min(y + r1, hm) * w + bx;
+                for (c = 0; c < n; c++) {
+                    s = sum[c];
+                    pix[yi + c] = (short) ((TO_5[dv[(int) (s >>> 42)]] << 11)
+                            | (TO_6[dv[(int) (s >>> 21) & LANE_MASK]] << 5) | TO_5[dv[(int) s & LANE_MASK]]);
+
+                    s -= outsum[c];
+                    outsum[c] -= packed(stack[start + c]);
+
+                    p = src[from + c];
+                    stack[start + c] = p;
+                    insum[c] += packed(p);
+                    sum[c] = s + insum[c];
+
+                    e = packed(stack[nextStart + c]);
+                    outsum[c] += e;
+                    insum[c] -= e;
+                }
+                stackpointer = next;
+                yi += stride;
+            }
+        }
+    }
+
+    /**
+     * 纵向模糊 8 位单通道的 [x0, x1) 列，参数含义同 {@link #blurColumns565}；
+     * 只用 state 中的一组累加器，栈布局为 [栈槽][列]
+     */
+    static void blurColumns8(byte[] src, int w, byte[] pix, int offset, int stride, int h, int radius,
+                             int[] dv, StackBlur.ColumnState state, int x0, int x1) {
+        int hm = h - 1;
+        int div = radius + radius + 1;
+        int r1 = radius + 1;
+
+        state.prepare(div);
+        int[] stack = state.stack;
+        int[] sum = state.rsum;
+        int[] insum = state.rinsum;
+        int[] outsum = state.routsum;
+
+        int c, i, p, y, yi, sir, rbs;
+        int stackpointer;
+
+        for (int bx = x0; bx < x1; bx += StackBlur.ColumnState.BLOCK) {
+            int n = Math.min(StackBlur.ColumnState.BLOCK, x1 - bx);
+            for (c = 0; c < n; c++) {
+                sum[c] = insum[c] = outsum[c] = 0;
+            }
+            for (i = -radius; i <= radius; i++) {
+                yi = Math.max(0, Math.min(i, hm)) * w + bx;
+                rbs = r1 - Math.abs(i);
+                sir = (i + radius) * StackBlur.ColumnState.BLOCK;
+                for (c = 0; c < n; c++) {
+                    p = src[yi + c] & 0xff;
+                    stack[sir + c] = p;
+                    sum[c] += p * rbs;
+                    if (i > 0) {
+                        insum[c] += p;
+                    } else {
+                        outsum[c] += p;
+                    }
+                }
+            }
+            stackpointer = radius;
+            yi = offset + bx;
+            for (y = 0; y < h; y++) {
+                int start = StackBlur.wrap(stackpointer + r1, div) * StackBlur.ColumnState.BLOCK;
+                int next = StackBlur.wrap(stackpointer + 1, div);
+                int nextStart = next * StackBlur.ColumnState.BLOCK;
+                int from = Math.min(y + r1, hm) * w + bx;
+                for (c = 0; c < n; c++) {
+                    pix[yi + c] = (byte) dv[sum[c]];
+
+                    sum[c] -= outsum[c];
+                    outsum[c] -= stack[start + c];
+
+                    p = src[from + c] & 0xff;
+                    stack[start + c] = p;
+                    insum[c] += p;
+                    sum[c] += insum[c];
+
+                    p = stack[nextStart + c];
+                    outsum[c] += p;
+                    insum[c] -= p;
+                }
+                stackpointer = next;
+                yi += stride;
+            }
+        }
+    }
+
+    //565 像素三个通道扩展为 8 位后打包，红、绿、蓝依次占 42、21、0 位起的 21 位
+    private static long packed(int p) {
+        return ((long) red(p) << 42) | ((long) green(p) << 21) | blue(p);
+    }
+
+    //5、6 位通道扩展为 8 位，高位复制到低位，使 0 和满值保持不变
+    private static int red(int p) {
+        int r = (p >> 11) & 0x1f;
+        return (r << 3) | (r >> 2);
+    }
+
+    private static int green(int p) {
+        int g = (p >> 5) & 0x3f;
+        return (g << 2) | (g >> 4);
+    }
+
+    private static int blue(int p) {
+        int b = p & 0x1f;
+        return (b << 3) | (b >> 2);
+    }
+}
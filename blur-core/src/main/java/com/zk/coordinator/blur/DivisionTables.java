@@ -0,0 +1,77 @@
+package com.zk.coordinator.blur;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stack Blur 除法查找表（dv[i] = i / divsum）的进程级缓存，按半径共享，
+ * 总字节数超过上限时淘汰最久未用的表
+ * <p>
+ * 查找表只读，可被多个线程同时使用
+ */
+public final class DivisionTables {
+
+    //缓存上限，半径 0~20 的表合计约 3.4MB
+    private static final long MAX_BYTES = 4L * 1024 * 1024;
+
+    private static final LinkedHashMap<Integer, int[]> sTables =
+            new LinkedHashMap<Integer, int[]>(16, 0.75f, true);
+    private static long sBytes;
+
+    private DivisionTables() {
+    }
+
+    /**
+     * 获取半径对应的查找表，长度 256 * divsum
+     */
+    public static int[] get(int radius) {
+        synchronized (sTables) {
+            int[] table = sTables.get(radius);
+            if (table != null) {
+                return table;
+            }
+        }
+        int[] table = build(radius);
+        synchronized (sTables) {
+            int[] existing = sTables.get(radius);
+            if (existing != null) {
+                return existing;
+            }
+            sTables.put(radius, table);
+            sBytes += table.length * 4L;
+            Iterator<Map.Entry<Integer, int[]>> it = sTables.entrySet().iterator();
+            while (sBytes > MAX_BYTES && sTables.size() > 1 && it.hasNext()) {
+                Map.Entry<Integer, int[]> eldest = it.next();
+                if (eldest.getValue() == table) {
+                    continue;
+                }
+                sBytes -= eldest.getValue().length * 4L;
+                it.remove();
+            }
+        }
+        return table;
+    }
+
+    private static int[] build(int radius) {
+        int div = radius + radius + 1;
+        int divsum = (div + 1) >> 1;
+        divsum *= divsum;
+        int temp = 256 * divsum;
+        int[] dv = new int[temp];
+        for (int i = 0; i < temp; i++) {
+            dv[i] = (i / divsum);
+        }
+        return dv;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        synchronized (sTables) {
+            sTables.clear();
+            sBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 定点整数可分离高斯模糊，权重总和为 65536，标准差与同半径 Stack Blur 的卷积核一致；
+ * 纵向按行累加，访问顺序与内存布局一致
+ */
+public class GaussianBlur implements BlurEngine {
+
+    private static final int ONE = 65536;
+
+    @Override
+    public void blur(int[] pix, int w, int h, int radius, BlurContext context) {
+        if (radius < 1) {
+            return;
+        }
+        context.prepareBuffers(w, h);
+        int[] kernel = kernel(radius, context);
+        int k = kernel.length / 2;
+        int[] tmp = context.rgb;
+
+        blurHorizontal(pix, tmp, w, h, kernel, k, context.obtainLine(w + k + k));
+        if (context.isCanceled()) {
+            return;
+        }
+        blurVertical(tmp, pix, w, h, kernel, k, context.obtainLine(w * 3));
+    }
+
+    /**
+     * 按半径缓存在 context 中的定点权重，长度 2k+1
+     */
+    static int[] kernel(int radius, BlurContext context) {
+        if (context.kernel != null && context.kernelRadius == radius) {
+            return context.kernel;
+        }
+        double sigma = BlurEngines.sigmaForRadius(radius);
+        int k = Math.max(1, (int) Math.ceil(sigma * 3));
+        double[] weights = new double[k + k + 1];
+        double total = 0;
+        for (int i = -k; i <= k; i++) {
+            weights[i + k] = Math.exp(-(i * i) / (2 * sigma * sigma));
+            total += weights[i + k];
+        }
+        int[] kernel = new int[k + k + 1];
+        int sum = 0;
+        for (int i = 0; i < kernel.length; i++) {
+            kernel[i] = (int) (weights[i] / total * ONE);
+            sum += kernel[i];
+        }
+        //舍入误差补到中心，保证总和精确为 ONE
+        kernel[k] += ONE - sum;
+        context.kernel = kernel;
+        context.kernelRadius = radius;
+        return kernel;
+    }
+
+    /**
+     * 横向卷积，每行先复制到两端延伸 k 个像素的行缓冲，内层循环无需边界判断
+     */
+    private static void blurHorizontal(int[] src, int[] dst, int w, int h, int[] kernel, int k, int[] line) {
+        int taps = kernel.length;
+        for (int y = 0, base = 0; y < h; y++, base += w) {
+            int first = src[base];
+            int last = src[base + w - 1];
+            for (int i = 0; i < k; i++) {
+                line[i] = first;
+                line[k + w + i] = last;
+            }
+            System.arraycopy(src, base, line, k, w);
+            for (int x = 0; x < w; x++) {
+                int rsum = 0, gsum = 0, bsum = 0;
+                for (int t = 0; t < taps; t++) {
+                    int p = line[x + t];
+                    int weight = kernel[t];
+                    rsum += (p >> 16 & 0xff) * weight;
+                    gsum += (p >> 8 & 0xff) * weight;
+                    bsum += (p & 0xff) * weight;
+                }
+                dst[base + x] = ((rsum + 32768) >>> 16) << 16
+                        | ((gsum + 32768) >>> 16) << 8
+                        | ((bsum + 32768) >>> 16);
+            }
+        }
+    }
+
+    /**
+     * 纵向卷积，逐行把 2k+1 行按权重累加到三个通道的累加器，写回时保留 dst 原有的 alpha
+     */
+    private static void blurVertical(int[] src, int[] dst, int w, int h, int[] kernel, int k, int[] acc) {
+        int hm = h - 1;
+        int gOff = w;
+        int bOff = w + w;
+        for (int y = 0, base = 0; y < h; y++, base += w) {
+            for (int x = 0; x < bOff + w; x++) {
+                acc[x] = 0;
+            }
+            for (int t = -k; t <= k; t++) {
+                int row = Math.min(Math.max(y + t, 0), hm) * w;
+                int weight = kernel[t + k];
+                for (int x = 0; x < w; x++) {
+                    int p = src[row + x];
+                    acc[x] += (p >> 16 & 0xff) * weight;
+                    acc[gOff + x] += (p >> 8 & 0xff) * weight;
+                    acc[bOff + x] += (p & 0xff) * weight;
+                }
+            }
+            for (int x = 0; x < w; x++) {
+                dst[base + x] = (dst[base + x] & 0xff000000)
+                        | ((acc[x] + 32768) >>> 16) << 16
+                        | ((acc[gOff + x] + 32768) >>> 16) << 8
+                        | ((acc[bOff + x] + 32768) >>> 16);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.zk.coordinator.blur;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多核 Stack Blur：横向按行、纵向按列切分成若干条带交给固定线程池并行处理，
+ * 两次遍历之间等待全部条带完成，结果与 {@link StackBlur} 逐位一致
+ * <p>
+ * 同一实例的 blur 调用串行执行
+ */
+public class ParallelStackBlur implements BlurEngine {
+
+    //条带太窄时线程调度的开销大于收益
+    private static final int MIN_BAND_SIZE = 16;
+
+    private final ExecutorService mExecutor;
+    private final int mParallelism;
+    private final Band[] mBands;
+
+    public ParallelStackBlur() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelStackBlur(int parallelism) {
+        mParallelism = Math.max(1, parallelism);
+        mExecutor = Executors.newFixedThreadPool(mParallelism, new WorkerFactory());
+        mBands = new Band[mParallelism];
+        for (int i = 0; i < mParallelism; i++) {
+            mBands[i] = new Band();
+        }
+    }
+
+    /**
+     * 原地模糊 pix 中 w*h 个像素，阻塞直到完成；context 被取消时各条带在子条带之间停止
+     */
+    @Override
+    public synchronized void blur(int[] pix, int w, int h, int radius, BlurContext context) {
+        if (radius < 1) {
+            return;
+        }
+        context.prepare(w, h, radius);
+        int div = radius + radius + 1;
+        for (Band band : mBands) {
+            band.prepare(pix, w, h, radius, context, div);
+        }
+        runPass(false, h);
+        if (!context.isCanceled()) {
+            runPass(true, w);
+        }
+    }
+
+    /**
+     * 把 [0, size) 切成条带并行执行，调用线程自己处理第一条
+     */
+    private void runPass(boolean columns, int size) {
+        int count = Math.max(1, Math.min(mParallelism, size / MIN_BAND_SIZE));
+        CountDownLatch latch = new CountDownLatch(count - 1);
+        for (int i = 0; i < count; i++) {
+            Band band = mBands[i];
+            band.columns = columns;
+            band.from = boundary(columns, size, i, count);
+            band.to = boundary(columns, size, i + 1, count);
+            band.latch = latch;
+            band.failure = null;
+        }
+        for (int i = 1; i < count; i++) {
+            mExecutor.execute(mBands[i]);
+        }
+        mBands[0].process();
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("blur interrupted", e);
+        }
+        for (int i = 1; i < count; i++) {
+            if (mBands[i].failure != null) {
+                throw new IllegalStateException("blur band failed", mBands[i].failure);
+            }
+        }
+    }
+
+    /**
+     * 第 i 条带的起点；列带对齐到分块宽度，避免两个线程写同一条缓存行
+     */
+    private static int boundary(boolean columns, int size, int i, int count) {
+        if (i >= count) {
+            return size;
+        }
+        int at = (int) ((long) size * i / count);
+        if (columns) {
+            at = at / StackBlur.ColumnState.BLOCK * StackBlur.ColumnState.BLOCK;
+        }
+        return at;
+    }
+
+    /**
+     * 关闭线程池
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    /**
+     * 一条行带或列带，每条持有自己的模糊栈
+     */
+    private static class Band implements Runnable {
+        int[] pix;
+        int w;
+        int h;
+        int radius;
+        BlurContext context;
+        int[] stack;
+        final StackBlur.ColumnState columnState = new StackBlur.ColumnState();
+
+        boolean columns;
+        int from;
+        int to;
+        CountDownLatch latch;
+        volatile Throwable failure;
+
+        void prepare(int[] pix, int w, int h, int radius, BlurContext context, int div) {
+            this.pix = pix;
+            this.w = w;
+            this.h = h;
+            this.radius = radius;
+            this.context = context;
+            if (stack == null || stack.length != div * 3) {
+                stack = new int[div * 3];
+            }
+        }
+
+        void process() {
+            if (columns) {
+                StackBlur.blurColumnBands(pix, 0, w, w, h, radius, context, columnState, from, to);
+            } else {
+                StackBlur.blurRowBands(pix, 0, w, w, h, radius, context, stack, from, to);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                process();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                latch.countDown();
+            }
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "blur-worker-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
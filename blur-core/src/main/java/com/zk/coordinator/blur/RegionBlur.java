@@ -0,0 +1,66 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 局部模糊：只计算矩形区域，四周各多读 radius 个像素作为边距，区域外的结果不写
+ * <p>
+ * Stack Blur 每个输出像素只依赖半径以内的输入，边距为 radius 时区域内的结果与整图模糊逐位一致；
+ * 盒式、高斯等实现的支撑范围更大，区域边缘附近只是近似
+ */
+public final class RegionBlur {
+
+    private RegionBlur() {
+    }
+
+    /**
+     * 模糊 src 中 [left, right) x [top, bottom) 区域，结果写入 dst 的同一位置；矩形会被裁剪到图片范围内
+     * <p>
+     * src 和 dst 可以是同一个数组
+     */
+    public static void blur(int[] src, int[] dst, int w, int h, int left, int top, int right, int bottom,
+                            int radius, BlurContext context, BlurEngine engine) {
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(w, right);
+        bottom = Math.min(h, bottom);
+        if (radius < 1 || left >= right || top >= bottom) {
+            return;
+        }
+        int padLeft = Math.max(0, left - radius);
+        int padTop = Math.max(0, top - radius);
+        int padWidth = Math.min(w, right + radius) - padLeft;
+        int padHeight = Math.min(h, bottom + radius) - padTop;
+
+        int[] pix = context.obtainPixels(padWidth, padHeight);
+        for (int y = 0; y < padHeight; y++) {
+            System.arraycopy(src, (padTop + y) * w + padLeft, pix, y * padWidth, padWidth);
+        }
+        engine.blur(pix, padWidth, padHeight, radius, context);
+        if (context.isCanceled()) {
+            return;
+        }
+        int width = right - left;
+        for (int y = top; y < bottom; y++) {
+            System.arraycopy(pix, (y - padTop) * padWidth + left - padLeft, dst, y * w + left, width);
+        }
+    }
+
+    /**
+     * 源图局部变化后更新之前的模糊结果：每个脏矩形向外扩展 radius 后重新计算，其余区域保持不变
+     *
+     * @param src 变化后的源图，不能与 dst 是同一个数组
+     * @param dst 之前的模糊结果，原地更新
+     * @param dirty 脏矩形，每 4 个元素依次为 left、top、right、bottom
+     * @param count 脏矩形个数
+     */
+    public static void update(int[] src, int[] dst, int w, int h, int[] dirty, int count,
+                              int radius, BlurContext context, BlurEngine engine) {
+        if (src == dst) {
+            throw new IllegalArgumentException("src and dst must be different arrays");
+        }
+        for (int i = 0; i < count && !context.isCanceled(); i++) {
+            int j = i * 4;
+            blur(src, dst, w, h, dirty[j] - radius, dirty[j + 1] - radius,
+                    dirty[j + 2] + radius, dirty[j + 3] + radius, radius, context, engine);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.zk.coordinator.blur;
+
+/**
+ * Stack Blur 算法，直接处理 ARGB 像素数组，工作缓冲全部来自 {@link BlurContext}
+ */
+public final class StackBlur {
+
+    //检查取消标记的条带大小，纵向为分块宽度的整数倍
+    static final int BAND = 64;
+
+    private StackBlur() {
+    }
+
+    /**
+     * 原地模糊 pix 中 w*h 个像素，保留 alpha 通道；context 被取消时在条带之间提前返回
+     */
+    public static void blur(int[] pix, int w, int h, int radius, BlurContext context) {
+        blur(pix, 0, w, w, h, radius, context);
+    }
+
+    /**
+     * 原地模糊 pix 中从 offset 开始、行跨度为 stride 的 w*h 子区域，区域外的像素不读不写
+     */
+    public static void blur(int[] pix, int offset, int stride, int w, int h, int radius, BlurContext context) {
+        if (radius < 1) {
+            return;
+        }
+        context.prepare(w, h, radius);
+        if (blurRowBands(pix, offset, stride, w, h, radius, context, context.stack, 0, h)) {
+            blurColumnBands(pix, offset, stride, w, h, radius, context, context.columnState, 0, w);
+        }
+    }
+
+    /**
+     * 按 {@link #BAND} 行一条带横向模糊 [y0, y1)，每条带之前检查取消，被取消时返回 false
+     */
+    static boolean blurRowBands(int[] pix, int offset, int stride, int w, int h, int radius,
+                                BlurContext context, int[] stack, int y0, int y1) {
+        for (int y = y0; y < y1; y += BAND) {
+            if (context.isCanceled()) {
+                return false;
+            }
+            blurRows(pix, offset, stride, w, h, radius, context, stack, y, Math.min(y + BAND, y1));
+        }
+        return true;
+    }
+
+    /**
+     * 按 {@link #BAND} 列一条带纵向模糊 [x0, x1)，每条带之前检查取消，被取消时返回 false
+     */
+    static boolean blurColumnBands(int[] pix, int offset, int stride, int w, int h, int radius,
+                                   BlurContext context, ColumnState state, int x0, int x1) {
+        for (int x = x0; x < x1; x += BAND) {
+            if (context.isCanceled()) {
+                return false;
+            }
+            blurColumns(pix, offset, stride, w, h, radius, context, state, x, Math.min(x + BAND, x1));
+        }
+        return true;
+    }
+
+    /**
+     * 横向模糊 [y0, y1) 行，第 y 行从 pix[offset + y * stride] 开始，结果以 0x00RRGGBB 打包写入
+     * context 的 rgb 中间缓冲（行跨度为 w），各行之间互不依赖
+     * <p>
+     * 模糊栈是扁平的 int[div*3]，栈下标以 3 为步长无分支回绕；右侧读取点用 Math.min 夹在行尾，
+     * 内层循环没有取模和条件分支，便于 JIT 展开和消除边界检查
+     */
+    static void blurRows(int[] pix, int offset, int stride, int w, int h, int radius,
+                         BlurContext context, int[] stack, int y0, int y1) {
+        int[] rgb = context.rgb;
+        int[] dv = context.dv;
+        for (int y = y0; y < y1; y++) {
+            blurRow(pix, offset + y * stride, rgb, y * w, w, radius, dv, stack);
+        }
+    }
+
+    /**
+     * 横向模糊一行：读取 pix 中从 from 开始的 w 个像素，打包写入 rgb 中从 to 开始的位置
+     */
+    static void blurRow(int[] pix, int from, int[] rgb, int to, int w, int radius, int[] dv, int[] stack) {
+        int wm = w - 1;
+        int div = radius + radius + 1;
+        int div3 = div * 3;
+        int r1 = radius + 1;
+
+        int rsum, gsum, bsum, routsum, goutsum, boutsum, rinsum, ginsum, binsum;
+        int i, p, pr, pg, pb, rbs, sir;
+
+        rinsum = ginsum = binsum = routsum = goutsum = boutsum = rsum = gsum = bsum = 0;
+        for (i = -radius; i <= radius; i++) {
+            p = pix[from + Math.min(wm, Math.max(i, 0))];
+            pr = (p >> 16) & 0xff;
+            pg = (p >> 8) & 0xff;
+            pb = p & 0xff;
+            sir = (i + radius) * 3;
+            stack[sir] = pr;
+            stack[sir + 1] = pg;
+            stack[sir + 2] = pb;
+            rbs = r1 - Math.abs(i);
+            rsum += pr * rbs;
+            gsum += pg * rbs;
+            bsum += pb * rbs;
+            if (i > 0) {
+                rinsum += pr;
+                ginsum += pg;
+                binsum += pb;
+            } else {
+                routsum += pr;
+                goutsum += pg;
+                boutsum += pb;
+            }
+        }
+
+        //center 为栈指针，start 为即将被替换的最旧一格，二者同步前进
+        int center = radius * 3;
+        int start = wrap(center + r1 * 3, div3);
+        int src = from + r1;
+        int last = from + wm;
+        int end = to + w;
+        for (int yi = to; yi < end; yi++) {
+            rgb[yi] = (dv[rsum] << 16) | (dv[gsum] << 8) | dv[bsum];
+
+            rsum -= routsum;
+            gsum -= goutsum;
+            bsum -= boutsum;
+
+            routsum -= stack[start];
+            goutsum -= stack[start + 1];
+            boutsum -= stack[start + 2];
+
+            p = pix[Math.min(src++, last)];
+            pr = (p >> 16) & 0xff;
+            pg = (p >> 8) & 0xff;
+            pb = p & 0xff;
+            stack[start] = pr;
+            stack[start + 1] = pg;
+            stack[start + 2] = pb;
+
+            rinsum += pr;
+            ginsum += pg;
+            binsum += pb;
+
+            rsum += rinsum;
+            gsum += ginsum;
+            bsum += binsum;
+
+            center = wrap(center + 3, div3);
+            start = wrap(start + 3, div3);
+
+            pr = stack[center];
+            pg = stack[center + 1];
+            pb = stack[center + 2];
+
+            routsum += pr;
+            goutsum += pg;
+            boutsum += pb;
+
+            rinsum -= pr;
+            ginsum -= pg;
+            binsum -= pb;
+        }
+    }
+
+    /**
+     * 无分支回绕：index 落在 [0, 2*size) 内，等于 size 及以上时减去 size
+     */
+    static int wrap(int index, int size) {
+        return index - (size & ~((index - size) >> 31));
+    }
+
+    /**
+     * 纵向模糊 [x0, x1) 列，从 context 的 rgb 中间缓冲读取并写回 pix，各列之间互不依赖
+     * <p>
+     * 每次并排处理 {@link ColumnState#BLOCK} 列，逐行推进，每行读写的都是连续内存，
+     * 避免逐列按 w 步长访问造成的缓存缺失；各列的累加器和模糊栈放在 state 中
+     */
+    static void blurColumns(int[] pix, int offset, int stride, int w, int h, int radius,
+                            BlurContext context, ColumnState state, int x0, int x1) {
+        int hm = h - 1;
+        int div = radius + radius + 1;
+        int r1 = radius + 1;
+
+        int[] rgb = context.rgb;
+        int[] dv = context.dv;
+
+        state.prepare(div);
+        int[] stack = state.stack;
+        int[] rsum = state.rsum;
+        int[] gsum = state.gsum;
+        int[] bsum = state.bsum;
+        int[] rinsum = state.rinsum;
+        int[] ginsum = state.ginsum;
+        int[] binsum = state.binsum;
+        int[] routsum = state.routsum;
+        int[] goutsum = state.goutsum;
+        int[] boutsum = state.boutsum;
+
+        int c, i, p, y, yi, sir, rbs, pr, pg, pb;
+        int stackpointer;
+
+        for (int bx = x0; bx < x1; bx += ColumnState.BLOCK) {
+            int n = Math.min(ColumnState.BLOCK, x1 - bx);
+            for (c = 0; c < n; c++) {
+                rinsum[c] = ginsum[c] = binsum[c] = routsum[c] = goutsum[c] = boutsum[c]
+                        = rsum[c] = gsum[c] = bsum[c] = 0;
+            }
+            for (i = -radius; i <= radius; i++) {
+                yi = Math.max(0, Math.min(i, hm)) * w + bx;
+                rbs = r1 - Math.abs(i);
+                sir = (i + radius) * ColumnState.BLOCK * 3;
+                for (c = 0; c < n; c++, sir += 3) {
+                    p = rgb[yi + c];
+                    pr = p >> 16;
+                    pg = (p >> 8) & 0xff;
+                    pb = p & 0xff;
+                    stack[sir] = pr;
+                    stack[sir + 1] = pg;
+                    stack[sir + 2] = pb;
+                    rsum[c] += pr * rbs;
+                    gsum[c] += pg * rbs;
+                    bsum[c] += pb * rbs;
+                    if (i > 0) {
+                        rinsum[c] += pr;
+                        ginsum[c] += pg;
+                        binsum[c] += pb;
+                    } else {
+                        routsum[c] += pr;
+                        goutsum[c] += pg;
+                        boutsum[c] += pb;
+                    }
+                }
+            }
+            stackpointer = radius;
+            yi = offset + bx;
+            for (y = 0; y < h; y++) {
+                int start = wrap(stackpointer + r1, div) * ColumnState.BLOCK * 3;
+                int next = wrap(stackpointer + 1, div);
+                int nextStart = next * ColumnState.BLOCK * 3;
+                int src = Math.min(y + r1, hm) * w + bx;
+                for (c = 0; c < n; c++) {
+                    pix[yi + c] = (0xff000000 & pix[yi + c]) | (dv[rsum[c]] << 16)
+                            | (dv[gsum[c]] << 8) | dv[bsum[c]];
+
+                    rsum[c] -= routsum[c];
+                    gsum[c] -= goutsum[c];
+                    bsum[c] -= boutsum[c];
+
+                    sir = start + c * 3;
+                    routsum[c] -= stack[sir];
+                    goutsum[c] -= stack[sir + 1];
+                    boutsum[c] -= stack[sir + 2];
+
+                    p = rgb[src + c];
+                    pr = p >> 16;
+                    pg = (p >> 8) & 0xff;
+                    pb = p & 0xff;
+                    stack[sir] = pr;
+                    stack[sir + 1] = pg;
+                    stack[sir + 2] = pb;
+
+                    rinsum[c] += pr;
+                    ginsum[c] += pg;
+                    binsum[c] += pb;
+
+                    rsum[c] += rinsum[c];
+                    gsum[c] += ginsum[c];
+                    bsum[c] += binsum[c];
+
+                    sir = nextStart + c * 3;
+                    routsum[c] += stack[sir];
+                    goutsum[c] += stack[sir + 1];
+                    boutsum[c] += stack[sir + 2];
+
+                    rinsum[c] -= stack[sir];
+                    ginsum[c] -= stack[sir + 1];
+                    binsum[c] -= stack[sir + 2];
+                }
+                stackpointer = next;
+                yi += stride;
+            }
+        }
+    }
+
+    /**
+     * 纵向分块遍历的每列状态：累加器和扁平化的模糊栈，布局为 [栈槽][列][通道]
+     */
+    static final class ColumnState {
+        //每块并排处理的列数，16 个 int 正好一条 64 字节缓存行
+        static final int BLOCK = 16;
+
+        final int[] rsum = new int[BLOCK];
+        final int[] gsum = new int[BLOCK];
+        final int[] bsum = new int[BLOCK];
+        final int[] rinsum = new int[BLOCK];
+        final int[] ginsum = new int[BLOCK];
+        final int[] binsum = new int[BLOCK];
+        final int[] routsum = new int[BLOCK];
+        final int[] goutsum = new int[BLOCK];
+        final int[] boutsum = new int[BLOCK];
+        //RGB_565 纵向把三个通道打包在一个 long 中的累加器，见 CompactStackBlur.blurColumns565
+        final long[] packedSum = new long[BLOCK];
+        final long[] packedInsum = new long[BLOCK];
+        final long[] packedOutsum = new long[BLOCK];
+        int[] stack;
+
+        void prepare(int div) {
+            int size = div * BLOCK * 3;
+            if (stack == null || stack.length != size) {
+                stack = new int[size];
+            }
+        }
+    }
+}
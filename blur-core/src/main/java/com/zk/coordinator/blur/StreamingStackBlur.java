@@ -0,0 +1,256 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 逐行流式 Stack Blur：源图按条带分批推入，只保留 2*radius+1 行横向模糊结果组成的环形窗口，
+ * 每凑齐一行就把对应的输出行交给 {@link RowSink}；内存与图片高度无关，结果与 {@link StackBlur} 逐位一致
+ * <p>
+ * 环形窗口同时就是纵向模糊栈，所有列共用一个栈指针；窗口中每个像素的高字节保存原像素的 alpha。
+ * 非线程安全
+ */
+public class StreamingStackBlur {
+
+    public interface RowSink {
+        /**
+         * 按行号顺序回调，row 中前 w 个像素为第 y 行的模糊结果，回调返回后会被复用
+         */
+        void onRow(int y, int[] row, int w);
+    }
+
+    private final int mWidth;
+    private final int mRadius;
+    private final int mDiv;
+    private final RowSink mSink;
+
+    private final int[] mDv;
+    //横向模糊栈
+    private final int[] mStack;
+    //环形窗口，mDiv 行，每行 mWidth 个打包像素
+    private final int[] mWindow;
+    private final int[] mOut;
+    //每列的累加器
+    private final int[] mRsum;
+    private final int[] mGsum;
+    private final int[] mBsum;
+    private final int[] mRinsum;
+    private final int[] mGinsum;
+    private final int[] mBinsum;
+    private final int[] mRoutsum;
+    private final int[] mGoutsum;
+    private final int[] mBoutsum;
+
+    //已推入和已输出的行数
+    private int mPushed;
+    private int mEmitted;
+    //窗口中心所在的槽位，即纵向栈指针
+    private int mPointer;
+    //最近写入的槽位，图片结束后用它补齐底部
+    private int mLastSlot;
+    private boolean mStarted;
+    private boolean mFinished;
+
+    public StreamingStackBlur(int width, int radius, RowSink sink) {
+        if (width < 1 || radius < 1) {
+            throw new IllegalArgumentException("width and radius must be positive: " + width + ", " + radius);
+        }
+        mWidth = width;
+        mRadius = radius;
+        mDiv = radius + radius + 1;
+        mSink = sink;
+        mDv = DivisionTables.get(radius);
+        mStack = new int[mDiv * 3];
+        mWindow = new int[mDiv * width];
+        mOut = new int[width];
+        mRsum = new int[width];
+        mGsum = new int[width];
+        mBsum = new int[width];
+        mRinsum = new int[width];
+        mGinsum = new int[width];
+        mBinsum = new int[width];
+        mRoutsum = new int[width];
+        mGoutsum = new int[width];
+        mBoutsum = new int[width];
+    }
+
+    /**
+     * 推入 rows 行源像素，第 i 行从 pix[offset + i * stride] 开始
+     */
+    public void push(int[] pix, int offset, int stride, int rows) {
+        if (mFinished) {
+            throw new IllegalStateException("push after finish");
+        }
+        for (int i = 0; i < rows; i++) {
+            pushRow(pix, offset + i * stride);
+        }
+    }
+
+    /**
+     * 源图结束，按最后一行补齐窗口，输出剩余的行
+     */
+    public void finish() {
+        if (mFinished) {
+            return;
+        }
+        mFinished = true;
+        if (mPushed == 0) {
+            return;
+        }
+        if (!mStarted) {
+            //图片不足 radius+1 行，下方的槽位都用最后一行填充
+            for (int slot = mRadius + mPushed; slot < mDiv; slot++) {
+                System.arraycopy(mWindow, mLastSlot * mWidth, mWindow, slot * mWidth, mWidth);
+            }
+            start();
+        }
+        while (mEmitted < mPushed) {
+            int slot = retireOldest();
+            System.arraycopy(mWindow, mLastSlot * mWidth, mWindow, slot * mWidth, mWidth);
+            advance(slot);
+        }
+    }
+
+    /**
+     * 清空状态以处理下一张同宽度、同半径的图片
+     */
+    public void reset() {
+        mPushed = mEmitted = mPointer = mLastSlot = 0;
+        mStarted = mFinished = false;
+    }
+
+    /**
+     * 已输出的行数
+     */
+    public int getEmittedRows() {
+        return mEmitted;
+    }
+
+    private void pushRow(int[] pix, int from) {
+        if (!mStarted) {
+            //前 radius+1 行依次放在中心及其下方的槽位，中心上方的槽位复制第 0 行
+            int slot = mRadius + mPushed;
+            writeRow(pix, from, slot);
+            if (mPushed == 0) {
+                for (int s = 0; s < mRadius; s++) {
+                    System.arraycopy(mWindow, slot * mWidth, mWindow, s * mWidth, mWidth);
+                }
+            }
+            mPushed++;
+            if (mPushed == mRadius + 1) {
+                start();
+            }
+            return;
+        }
+        int slot = retireOldest();
+        writeRow(pix, from, slot);
+        mPushed++;
+        advance(slot);
+    }
+
+    /**
+     * 横向模糊一行写入槽位，并把原像素的 alpha 放进高字节
+     */
+    private void writeRow(int[] pix, int from, int slot) {
+        int to = slot * mWidth;
+        StackBlur.blurRow(pix, from, mWindow, to, mWidth, mRadius, mDv, mStack);
+        for (int x = 0; x < mWidth; x++) {
+            mWindow[to + x] |= pix[from + x] & 0xff000000;
+        }
+        mLastSlot = slot;
+    }
+
+    /**
+     * 窗口填满后计算各列的初始累加值并输出第 0 行
+     */
+    private void start() {
+        int w = mWidth;
+        int r1 = mRadius + 1;
+        for (int x = 0; x < w; x++) {
+            mRinsum[x] = mGinsum[x] = mBinsum[x] = mRoutsum[x] = mGoutsum[x] = mBoutsum[x]
+                    = mRsum[x] = mGsum[x] = mBsum[x] = 0;
+        }
+        for (int i = -mRadius; i <= mRadius; i++) {
+            int rbs = r1 - Math.abs(i);
+            int base = (i + mRadius) * w;
+            for (int x = 0; x < w; x++) {
+                int p = mWindow[base + x];
+                int pr = (p >> 16) & 0xff;
+                int pg = (p >> 8) & 0xff;
+                int pb = p & 0xff;
+                mRsum[x] += pr * rbs;
+                mGsum[x] += pg * rbs;
+                mBsum[x] += pb * rbs;
+                if (i > 0) {
+                    mRinsum[x] += pr;
+                    mGinsum[x] += pg;
+                    mBinsum[x] += pb;
+                } else {
+                    mRoutsum[x] += pr;
+                    mGoutsum[x] += pg;
+                    mBoutsum[x] += pb;
+                }
+            }
+        }
+        mPointer = mRadius;
+        mStarted = true;
+        emit();
+    }
+
+    /**
+     * 从累加器中移出最旧的一行，返回它的槽位，供写入新行
+     */
+    private int retireOldest() {
+        int slot = StackBlur.wrap(mPointer + mRadius + 1, mDiv);
+        int base = slot * mWidth;
+        for (int x = 0; x < mWidth; x++) {
+            int p = mWindow[base + x];
+            mRsum[x] -= mRoutsum[x];
+            mGsum[x] -= mGoutsum[x];
+            mBsum[x] -= mBoutsum[x];
+            mRoutsum[x] -= (p >> 16) & 0xff;
+            mGoutsum[x] -= (p >> 8) & 0xff;
+            mBoutsum[x] -= p & 0xff;
+        }
+        return slot;
+    }
+
+    /**
+     * 把槽位中的新行计入累加器，栈指针前进一格并输出下一行
+     */
+    private void advance(int slot) {
+        mPointer = StackBlur.wrap(mPointer + 1, mDiv);
+        int base = slot * mWidth;
+        int center = mPointer * mWidth;
+        for (int x = 0; x < mWidth; x++) {
+            int p = mWindow[base + x];
+            mRinsum[x] += (p >> 16) & 0xff;
+            mGinsum[x] += (p >> 8) & 0xff;
+            mBinsum[x] += p & 0xff;
+            mRsum[x] += mRinsum[x];
+            mGsum[x] += mGinsum[x];
+            mBsum[x] += mBinsum[x];
+            p = mWindow[center + x];
+            int pr = (p >> 16) & 0xff;
+            int pg = (p >> 8) & 0xff;
+            int pb = p & 0xff;
+            mRoutsum[x] += pr;
+            mGoutsum[x] += pg;
+            mBoutsum[x] += pb;
+            mRinsum[x] -= pr;
+            mGinsum[x] -= pg;
+            mBinsum[x] -= pb;
+        }
+        emit();
+    }
+
+    /**
+     * 输出中心行，alpha 取自该行的原像素
+     */
+    private void emit() {
+        int[] dv = mDv;
+        int center = mPointer * mWidth;
+        for (int x = 0; x < mWidth; x++) {
+            mOut[x] = (mWindow[center + x] & 0xff000000) | (dv[mRsum[x]] << 16)
+                    | (dv[mGsum[x]] << 8) | dv[mBsum[x]];
+        }
+        mSink.onRow(mEmitted++, mOut, mWidth);
+    }
+}
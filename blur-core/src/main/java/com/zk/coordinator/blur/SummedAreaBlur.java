@@ -0,0 +1,29 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 以 {@link BlurEngine} 形式使用积分图模糊，每次调用都重新建表；
+ * 源图不变、半径逐帧变化时应直接持有 {@link SummedAreaTable} 复用
+ * <p>
+ * 内部持有积分表，同一实例的调用串行执行
+ */
+public class SummedAreaBlur implements BlurEngine {
+
+    private final int mPasses;
+    private final SummedAreaTable mTable = new SummedAreaTable();
+
+    public SummedAreaBlur(int passes) {
+        mPasses = passes;
+    }
+
+    @Override
+    public synchronized void blur(int[] pix, int w, int h, int radius, BlurContext context) {
+        if (radius < 1) {
+            return;
+        }
+        mTable.build(pix, w, h);
+        if (context.isCanceled()) {
+            return;
+        }
+        mTable.blur(radius, mPasses, pix);
+    }
+}
@@ -0,0 +1,183 @@
+package com.zk.coordinator.blur;
+
+/**
+ * 积分图（summed-area table）模糊：对一张源图只建一次表，
+ * 之后任意半径的盒式模糊都只需每像素四次查表，不再读取源图
+ * <p>
+ * 表内的和用 int 保存，允许溢出回绕；单个盒子的真实和不超过 int 范围，
+ * 四项相减的结果在补码下仍然正确
+ * <p>
+ * 适合弹簧头部这种源图不变、半径逐帧变化的场景；非线程安全
+ */
+public class SummedAreaTable {
+
+    private int mWidth;
+    private int mHeight;
+    //(w+1)*(h+1) 的三个通道积分表，第0行第0列为0
+    private int[] mR;
+    private int[] mG;
+    private int[] mB;
+    //源图 alpha
+    private byte[] mAlpha;
+
+    //多次叠加时使用的中间积分表
+    private SummedAreaTable mScratch;
+    private int[] mScratchPixels;
+
+    /**
+     * 用源图建表，源图之后可以被修改或回收
+     */
+    public void build(int[] pix, int w, int h) {
+        int stride = w + 1;
+        int size = stride * (h + 1);
+        if (mR == null || mR.length < size) {
+            mR = new int[size];
+            mG = new int[size];
+            mB = new int[size];
+        }
+        if (mAlpha == null || mAlpha.length < w * h) {
+            mAlpha = new byte[w * h];
+        }
+        mWidth = w;
+        mHeight = h;
+        int[] tr = mR;
+        int[] tg = mG;
+        int[] tb = mB;
+        for (int x = 0; x < stride; x++) {
+            tr[x] = tg[x] = tb[x] = 0;
+        }
+        for (int y = 0; y < h; y++) {
+            int rowR = 0, rowG = 0, rowB = 0;
+            int above = y * stride + 1;
+            int cur = above + stride;
+            tr[cur - 1] = tg[cur - 1] = tb[cur - 1] = 0;
+            for (int x = 0, i = y * w; x < w; x++, i++) {
+                int p = pix[i];
+                mAlpha[i] = (byte) (p >>> 24);
+                rowR += p >> 16 & 0xff;
+                rowG += p >> 8 & 0xff;
+                rowB += p & 0xff;
+                tr[cur + x] = tr[above + x] + rowR;
+                tg[cur + x] = tg[above + x] + rowG;
+                tb[cur + x] = tb[above + x] + rowB;
+            }
+        }
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * 半径为 boxRadius 的盒式模糊写入 out，边缘处只平均图内像素
+     */
+    public void boxBlur(int boxRadius, int[] out) {
+        int w = mWidth;
+        int h = mHeight;
+        int stride = w + 1;
+        int full = (boxRadius + boxRadius + 1) * (boxRadius + boxRadius + 1);
+        //完整盒子用乘法代替除法
+        long mul = (1L << 32) / full;
+        int[] tr = mR;
+        int[] tg = mG;
+        int[] tb = mB;
+        for (int y = 0; y < h; y++) {
+            int top = Math.max(y - boxRadius, 0);
+            int bottom = Math.min(y + boxRadius + 1, h);
+            int rows = bottom - top;
+            int topRow = top * stride;
+            int bottomRow = bottom * stride;
+            for (int x = 0, i = y * w; x < w; x++, i++) {
+                int left = Math.max(x - boxRadius, 0);
+                int right = Math.min(x + boxRadius + 1, w);
+                int a = topRow + left;
+                int b = topRow + right;
+                int c = bottomRow + left;
+                int d = bottomRow + right;
+                int rsum = tr[d] - tr[b] - tr[c] + tr[a];
+                int gsum = tg[d] - tg[b] - tg[c] + tg[a];
+                int bsum = tb[d] - tb[b] - tb[c] + tb[a];
+                int area = rows * (right - left);
+                int red, green, blue;
+                if (area == full) {
+                    red = (int) ((rsum * mul + (1L << 31)) >>> 32);
+                    green = (int) ((gsum * mul + (1L << 31)) >>> 32);
+                    blue = (int) ((bsum * mul + (1L << 31)) >>> 32);
+                } else {
+                    red = rsum / area;
+                    green = gsum / area;
+                    blue = bsum / area;
+                }
+                out[i] = (mAlpha[i] & 0xff) << 24 | Math.min(red, 255) << 16
+                        | Math.min(green, 255) << 8 | Math.min(blue, 255);
+            }
+        }
+    }
+
+    /**
+     * 叠加 passes 次盒式模糊近似高斯，总方差与同半径 Stack Blur 卷积核一致；
+     * 第一次直接查本表，之后每次用上一次的结果重建中间表
+     *
+     * @param radius Stack Blur 意义上的半径
+     * @param passes 叠加次数，通常 2~3
+     */
+    public void blur(int radius, int passes, int[] out) {
+        if (radius < 1) {
+            copySource(out);
+            return;
+        }
+        passes = Math.max(1, passes);
+        double sigma = BlurEngines.sigmaForRadius(radius);
+        int boxRadius = (int) Math.round((Math.sqrt(12 * sigma * sigma / passes + 1) - 1) / 2);
+        boxRadius = Math.max(1, boxRadius);
+
+        boxBlur(boxRadius, out);
+        if (passes == 1) {
+            return;
+        }
+        int wh = mWidth * mHeight;
+        if (mScratch == null) {
+            mScratch = new SummedAreaTable();
+        }
+        if (mScratchPixels == null || mScratchPixels.length < wh) {
+            mScratchPixels = new int[wh];
+        }
+        for (int i = 1; i < passes; i++) {
+            System.arraycopy(out, 0, mScratchPixels, 0, wh);
+            mScratch.build(mScratchPixels, mWidth, mHeight);
+            mScratch.boxBlur(boxRadius, out);
+        }
+    }
+
+    private void copySource(int[] out) {
+        int w = mWidth;
+        int stride = w + 1;
+        for (int y = 0; y < mHeight; y++) {
+            int cur = (y + 1) * stride + 1;
+            int above = y * stride + 1;
+            for (int x = 0, i = y * w; x < w; x++, i++) {
+                int a = above + x;
+                int c = cur + x;
+                //单个像素 = 四个相邻积分值之差
+                int red = mR[c] - mR[c - 1] - mR[a] + mR[a - 1];
+                int green = mG[c] - mG[c - 1] - mG[a] + mG[a - 1];
+                int blue = mB[c] - mB[c - 1] - mB[a] + mB[a - 1];
+                out[i] = (mAlpha[i] & 0xff) << 24 | red << 16 | green << 8 | blue;
+            }
+        }
+    }
+
+    /**
+     * 释放积分表
+     */
+    public void release() {
+        mR = mG = mB = mScratchPixels = null;
+        mAlpha = null;
+        mScratch = null;
+        mWidth = mHeight = 0;
+    }
+}
@@ -0,0 +1,64 @@
+package com.zk.coordinator.blur;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按固定的耗时表回放 600 帧，检查选择结果和超时帧数
+ */
+public class BlurGovernorTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 540;
+    private static final int RADIUS = 20;
+    private static final long BUDGET = 8000000;
+    private static final int FRAMES = 600;
+    private static final long FRAME_NANOS = 16666667;
+    private static final long START = 1000000000L;
+
+    //默认级别各自每个原图像素的纳秒数：原尺寸和 1/2 都超出预算（约 13.7），1/4 以下都在预算内；
+    //1/4 按比例换算出的 1/2 开销在预算内，会被试探
+    private static final double[] COST = {20, 14, 3, 2.5, 1};
+
+    @Test
+    public void overBudgetLevelIsOnlyProbed() {
+        BlurGovernor governor = new BlurGovernor();
+        replay(governor, COST);
+        //冷启动不超时，之后每个试探间隔最多超时一帧
+        long maxProbes = FRAMES * FRAME_NANOS / BlurGovernor.PROBE_INTERVAL_NANOS + 1;
+        assertTrue(governor.toString(), governor.getOverBudgetCount() <= maxProbes);
+        assertEquals(0, governor.getChosenCount(0));
+        assertTrue(governor.toString(), governor.getChosenCount(2) >= FRAMES - maxProbes - 5);
+    }
+
+    @Test
+    public void coldStartUsesCheapestLevel() {
+        BlurGovernor governor = new BlurGovernor();
+        int level = governor.choose(WIDTH, HEIGHT, RADIUS, BUDGET, START);
+        assertEquals(governor.getLevelCount() - 1, level);
+    }
+
+    @Test
+    public void everythingInBudgetReachesFullQuality() {
+        BlurGovernor governor = new BlurGovernor();
+        replay(governor, new double[]{6, 2, 1, 0.8, 0.3});
+        assertEquals(0, governor.getOverBudgetCount());
+        assertTrue(governor.toString(), governor.getChosenCount(0) >= FRAMES - 10);
+    }
+
+    private static void replay(BlurGovernor governor, double[] cost) {
+        long now = START;
+        for (int frame = 0; frame < FRAMES; frame++, now += FRAME_NANOS) {
+            int level = governor.choose(WIDTH, HEIGHT, RADIUS, BUDGET, now);
+            governor.record(level, WIDTH, HEIGHT, RADIUS, cost(cost, level, frame), BUDGET, now);
+        }
+    }
+
+    //在表中的开销上加 ±3% 的固定抖动
+    private static long cost(double[] cost, int level, int frame) {
+        double jitter = 1 + ((frame * 7) % 13 - 6) * 0.005;
+        return (long) (cost[level] * jitter * WIDTH * HEIGHT);
+    }
+}